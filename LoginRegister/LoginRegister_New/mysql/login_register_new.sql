@@ -150,12 +150,13 @@ CREATE TABLE `user`  (
   `create_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
   `update_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
   PRIMARY KEY (`id`) USING BTREE,
-  UNIQUE INDEX `uk_account`(`account` ASC) USING BTREE,
-  UNIQUE INDEX `uk_email`(`email` ASC) USING BTREE,
-  INDEX `idx_phone`(`phone` ASC) USING BTREE,
+  UNIQUE INDEX `uk_account`(`account` ASC) USING BTREE COMMENT '账号登录、按账号查询：唯一索引最多命中一行，deleted = 0 在回表后判断',
+  UNIQUE INDEX `uk_email`(`email` ASC) USING BTREE COMMENT '邮箱登录、找回密码：同上',
+  INDEX `idx_phone_deleted`(`phone` ASC, `deleted` ASC) USING BTREE COMMENT '手机号找回密码：手机号不唯一，deleted 放入索引在索引内过滤已删除用户',
   INDEX `idx_status`(`status` ASC) USING BTREE,
   INDEX `idx_deleted`(`deleted` ASC) USING BTREE,
-  INDEX `idx_account_type`(`account_type` ASC) USING BTREE
+  INDEX `idx_account_type`(`account_type` ASC) USING BTREE,
+  INDEX `idx_deleted_create_time`(`deleted` ASC, `create_time` ASC) USING BTREE COMMENT '用户列表游标分页：deleted = 0 后按 (create_time, id) 定位和排序，二级索引隐含主键 id'
 ) ENGINE = InnoDB AUTO_INCREMENT = 32 CHARACTER SET = utf8mb4 COLLATE = utf8mb4_unicode_ci COMMENT = '用户表' ROW_FORMAT = DYNAMIC;
 
 -- ----------------------------
@@ -193,4 +194,12 @@ CREATE TABLE `user_social`  (
   UNIQUE INDEX `uk_provider_unionid`(`provider` ASC, `unionid` ASC) USING BTREE COMMENT '确保同一提供商的unionid唯一（unionid不为空时），一个第三方账号只能绑定一个用户'
 ) ENGINE = InnoDB AUTO_INCREMENT = 2 CHARACTER SET = utf8mb4 COLLATE = utf8mb4_unicode_ci COMMENT = '第三方账号绑定表' ROW_FORMAT = DYNAMIC;
 
+-- ----------------------------
+-- 已有数据库升级
+-- 手机号索引加入 deleted 列
+-- ALTER TABLE `user` DROP INDEX `idx_phone`, ADD INDEX `idx_phone_deleted`(`phone` ASC, `deleted` ASC) USING BTREE;
+-- 用户列表游标分页索引
+-- ALTER TABLE `user` ADD INDEX `idx_deleted_create_time`(`deleted` ASC, `create_time` ASC) USING BTREE;
+-- ----------------------------
+
 SET FOREIGN_KEY_CHECKS = 1;
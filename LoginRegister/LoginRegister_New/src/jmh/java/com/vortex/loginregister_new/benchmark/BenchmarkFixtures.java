@@ -0,0 +1,109 @@
+package com.vortex.loginregister_new.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vortex.loginregister_new.service.RedisService;
+import com.vortex.loginregister_new.service.RefreshTokenFamilyService;
+import com.vortex.loginregister_new.service.UserTokenEpochService;
+import com.vortex.loginregister_new.util.JwtKeyManager;
+import com.vortex.loginregister_new.util.JwtTokenCache;
+import com.vortex.loginregister_new.util.JwtUtil;
+import com.vortex.loginregister_new.util.RedisKeys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 基准测试公共装配
+ * 不启动 Spring 容器，直接构建认证链路上的组件，Redis 以 Mockito 模拟（所有键均不存在）
+ *
+ * @author Vortex
+ * @since 2024
+ */
+final class BenchmarkFixtures {
+
+    static final String HMAC_SECRET = "benchmark-secret-key-must-be-at-least-256-bits-long-for-hs256";
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * 模拟的 RedisService：批量读取返回等长的 null 列表，其余命令返回默认值
+     */
+    static RedisService mockRedisService() {
+        RedisService redisService = mock(RedisService.class);
+        when(redisService.multiGet(anyCollection())).thenAnswer(invocation ->
+                Arrays.asList(new String[((Collection<?>) invocation.getArgument(0)).size()]));
+        when(redisService.multiGetCached(anyList())).thenAnswer(invocation ->
+                Arrays.asList(new String[((Collection<?>) invocation.getArgument(0)).size()]));
+        return redisService;
+    }
+
+    static JwtTokenCache tokenCache(boolean enabled) {
+        return new JwtTokenCache(enabled, 100_000, new SimpleMeterRegistry());
+    }
+
+    static UserTokenEpochService epochService(RedisService redisService) {
+        return new UserTokenEpochService(redisService, mock(RedisMessageListenerContainer.class),
+                new RedisKeys(false), 100_000, 10);
+    }
+
+    /**
+     * 构建使用指定签名算法签发的 JwtUtil
+     *
+     * @param algorithm    HS256 / EdDSA / ES256
+     * @param tokenCache   验证缓存
+     * @param redisService Redis 模拟
+     */
+    static JwtUtil jwtUtil(String algorithm, JwtTokenCache tokenCache, RedisService redisService) {
+        JwtKeyManager keyManager = new JwtKeyManager(new MockEnvironment(), tokenCache, new ObjectMapper(),
+                mock(RedisService.class), mock(RedisMessageListenerContainer.class));
+        if ("HS256".equals(algorithm)) {
+            keyManager.rotate(Map.of(JwtKeyManager.DEFAULT_KID, HMAC_SECRET), JwtKeyManager.DEFAULT_KID);
+        } else {
+            keyManager.rotate(Map.of(JwtKeyManager.DEFAULT_KID, HMAC_SECRET),
+                    Map.of("bench", asymmetricKey(algorithm)), "bench");
+        }
+        return new JwtUtil(keyManager, tokenCache, epochService(redisService),
+                new RefreshTokenFamilyService(redisService));
+    }
+
+    private static JwtKeyManager.AsymmetricKeyProperties asymmetricKey(String algorithm) {
+        try {
+            KeyPair keyPair;
+            if ("ES256".equals(algorithm)) {
+                KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+                generator.initialize(new ECGenParameterSpec("secp256r1"));
+                keyPair = generator.generateKeyPair();
+            } else {
+                keyPair = KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+            }
+            JwtKeyManager.AsymmetricKeyProperties properties = new JwtKeyManager.AsymmetricKeyProperties();
+            properties.setAlgorithm(algorithm);
+            properties.setPrivateKey(toPem("PRIVATE KEY", keyPair.getPrivate().getEncoded()));
+            properties.setPublicKey(toPem("PUBLIC KEY", keyPair.getPublic().getEncoded()));
+            return properties;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("生成基准测试密钥失败: " + algorithm, e);
+        }
+    }
+
+    private static String toPem(String type, byte[] encoded) {
+        return "-----BEGIN " + type + "-----\n"
+                + Base64.getMimeEncoder().encodeToString(encoded)
+                + "\n-----END " + type + "-----\n";
+    }
+}
@@ -0,0 +1,91 @@
+package com.vortex.loginregister_new.benchmark;
+
+import com.vortex.loginregister_new.common.Constants;
+import com.vortex.loginregister_new.filter.JwtAuthenticationFilter;
+import com.vortex.loginregister_new.service.RedisService;
+import com.vortex.loginregister_new.service.UserTokenEpochService;
+import com.vortex.loginregister_new.service.impl.JwtBlacklistServiceImpl;
+import com.vortex.loginregister_new.util.JwtTokenCache;
+import com.vortex.loginregister_new.util.JwtUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * 认证过滤器完整链路基准
+ * 真实的 JwtUtil、JwtBlacklistServiceImpl 与布隆过滤器，Redis 以 Mockito 模拟；
+ * 布隆过滤器和纪元缓存预热后，稳态请求不访问 Redis
+ *
+ * @author Vortex
+ * @since 2024
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtAuthenticationFilterBenchmark {
+
+    @Param({"HS256", "EdDSA"})
+    public String algorithm;
+
+    @Param({"false", "true"})
+    public boolean tokenCacheEnabled;
+
+    private JwtAuthenticationFilter filter;
+    private String authorization;
+
+    @Setup
+    public void setup() throws ServletException, IOException {
+        RedisService redisService = BenchmarkFixtures.mockRedisService();
+        JwtTokenCache tokenCache = BenchmarkFixtures.tokenCache(tokenCacheEnabled);
+        UserTokenEpochService epochService = BenchmarkFixtures.epochService(redisService);
+        JwtUtil jwtUtil = BenchmarkFixtures.jwtUtil(algorithm, tokenCache, redisService);
+        JwtBlacklistServiceImpl blacklistService = new JwtBlacklistServiceImpl(redisService, jwtUtil, tokenCache,
+                mock(RedisMessageListenerContainer.class), epochService, new SimpleMeterRegistry(), 100_000, 0.001);
+        blacklistService.rebuildBloomFilter();
+
+        filter = new JwtAuthenticationFilter(jwtUtil, blacklistService);
+        ReflectionTestUtils.setField(filter, "tokenHeader", "Authorization");
+        ReflectionTestUtils.setField(filter, "tokenPrefix", "Bearer ");
+        authorization = "Bearer " + jwtUtil.generateAccessToken(10001L, "benchmark_user", Constants.Role.USER);
+
+        // 预热纪元缓存
+        doFilter();
+    }
+
+    @Benchmark
+    public Object doFilter() throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/user/info");
+        request.addHeader("Authorization", authorization);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        try {
+            filter.doFilter(request, response, new MockFilterChain());
+            return request.getAttribute("userId");
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
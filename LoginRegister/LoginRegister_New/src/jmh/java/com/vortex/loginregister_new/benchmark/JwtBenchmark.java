@@ -0,0 +1,90 @@
+package com.vortex.loginregister_new.benchmark;
+
+import com.vortex.loginregister_new.common.Constants;
+import com.vortex.loginregister_new.service.RedisService;
+import com.vortex.loginregister_new.util.JwtClaims;
+import com.vortex.loginregister_new.util.JwtUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JwtUtil 签发与验证基准
+ * 对比各签名算法（HS256 / EdDSA / ES256）的签发、验证开销，
+ * 以及认证过滤器旧实现（同一 token 多次解析）与 parseToken 单次解析、验证缓存命中的差异
+ *
+ * @author Vortex
+ * @since 2024
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtBenchmark {
+
+    private static final Long USER_ID = 10001L;
+    private static final String ACCOUNT = "benchmark_user";
+
+    @Param({"HS256", "EdDSA", "ES256"})
+    public String algorithm;
+
+    private JwtUtil jwtUtil;
+    private JwtUtil cachedJwtUtil;
+    private String accessToken;
+
+    @Setup
+    public void setup() {
+        RedisService redisService = BenchmarkFixtures.mockRedisService();
+        jwtUtil = BenchmarkFixtures.jwtUtil(algorithm, BenchmarkFixtures.tokenCache(false), redisService);
+        cachedJwtUtil = BenchmarkFixtures.jwtUtil(algorithm, BenchmarkFixtures.tokenCache(true), redisService);
+        accessToken = jwtUtil.generateAccessToken(USER_ID, ACCOUNT, Constants.Role.USER);
+        // 预热验证缓存
+        cachedJwtUtil.parseToken(accessToken);
+    }
+
+    @Benchmark
+    public String generateAccessToken() {
+        return jwtUtil.generateAccessToken(USER_ID, ACCOUNT, Constants.Role.USER);
+    }
+
+    /**
+     * 单次签名校验得到全部声明
+     */
+    @Benchmark
+    public JwtClaims parseToken() {
+        return jwtUtil.parseToken(accessToken);
+    }
+
+    /**
+     * 验证缓存命中（jwt.cache.enabled=true）
+     */
+    @Benchmark
+    public JwtClaims parseTokenCached() {
+        return cachedJwtUtil.parseToken(accessToken);
+    }
+
+    /**
+     * 旧版过滤器的调用序列：每次取声明都重新解析并校验签名
+     */
+    @Benchmark
+    public void legacyMultiParse(Blackhole blackhole) {
+        blackhole.consume(jwtUtil.validateToken(accessToken));
+        blackhole.consume(jwtUtil.isRefreshToken(accessToken));
+        blackhole.consume(jwtUtil.getAccountFromToken(accessToken));
+        blackhole.consume(jwtUtil.getUserIdFromToken(accessToken));
+        blackhole.consume(jwtUtil.getRoleFromToken(accessToken));
+    }
+}
@@ -0,0 +1,121 @@
+package com.vortex.loginregister_new.benchmark;
+
+import com.vortex.loginregister_new.config.RedisConfig;
+import com.vortex.loginregister_new.service.RateLimitService;
+import com.vortex.loginregister_new.service.RedisService;
+import com.vortex.loginregister_new.service.impl.RedisServiceImpl;
+import com.vortex.loginregister_new.util.LocalRateLimiter;
+import com.vortex.loginregister_new.util.RedisCircuitBreaker;
+import com.vortex.loginregister_new.util.RedisCommandStats;
+import com.vortex.loginregister_new.util.RedisNearCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 限流实现吞吐量基准（需要可访问的 Redis）
+ * 对比旧版 GET + SET 固定窗口、滑动窗口脚本与 GCRA 脚本，
+ * Redis 地址通过 -Dbenchmark.redis.host / -Dbenchmark.redis.port 指定，默认 localhost:6379
+ *
+ * @author Vortex
+ * @since 2024
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class RateLimitBenchmark {
+
+    /**
+     * 大额度，保证测量的是正常放行路径而非拒绝路径
+     */
+    private static final int MAX_REQUESTS = 1_000_000;
+    private static final int WINDOW_SECONDS = 60;
+
+    private LettuceConnectionFactory connectionFactory;
+    private RedisService redisService;
+    private RateLimitService rateLimitService;
+
+    @Setup
+    public void setup() {
+        RedisStandaloneConfiguration configuration = new RedisStandaloneConfiguration(
+                System.getProperty("benchmark.redis.host", "localhost"),
+                Integer.getInteger("benchmark.redis.port", 6379));
+        connectionFactory = new LettuceConnectionFactory(configuration);
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisService = new RedisServiceImpl(new RedisConfig().redisTemplate(connectionFactory),
+                new RedisCircuitBreaker(5, 10000, new SimpleMeterRegistry()),
+                new RedisNearCache(false, 0, connectionFactory, new SimpleMeterRegistry()),
+                new RedisCommandStats(List.of(), new SimpleMeterRegistry()));
+        // 关闭本地限流层，测量的是 Redis 路径本身
+        rateLimitService = new RateLimitService(redisService,
+                new LocalRateLimiter(false, 0, 1, 0, new SimpleMeterRegistry()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        connectionFactory.destroy();
+    }
+
+    /**
+     * 每个线程使用独立的限流键，模拟不同IP
+     */
+    @State(Scope.Thread)
+    public static class ClientKey {
+
+        private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+        String key;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            key = "benchmark:" + SEQUENCE.incrementAndGet();
+        }
+    }
+
+    /**
+     * 旧版实现：GET 后 SET 并重置过期时间，两次往返
+     */
+    @Benchmark
+    public boolean legacyGetSet(ClientKey client) {
+        String redisKey = "rate_limit:" + client.key;
+        String countStr = redisService.get(redisKey);
+        int count = countStr == null ? 0 : Integer.parseInt(countStr);
+        if (count >= MAX_REQUESTS) {
+            return true;
+        }
+        redisService.set(redisKey, String.valueOf(count + 1), WINDOW_SECONDS, TimeUnit.SECONDS);
+        return false;
+    }
+
+    @Benchmark
+    public boolean slidingWindow(ClientKey client) {
+        return rateLimitService.isRateLimited(client.key, MAX_REQUESTS, WINDOW_SECONDS);
+    }
+
+    @Benchmark
+    public RateLimitService.Decision gcra(ClientKey client) {
+        return rateLimitService.tryAcquireGcra(client.key, MAX_REQUESTS, WINDOW_SECONDS, MAX_REQUESTS);
+    }
+}
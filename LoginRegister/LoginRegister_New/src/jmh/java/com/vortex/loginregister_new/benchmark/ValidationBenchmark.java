@@ -0,0 +1,64 @@
+package com.vortex.loginregister_new.benchmark;
+
+import com.vortex.loginregister_new.util.SqlInjectionUtils;
+import com.vortex.loginregister_new.util.ValidationUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 输入校验正则基准
+ * 覆盖登录/注册请求中 ValidationUtils 与 SqlInjectionUtils 的调用
+ *
+ * @author Vortex
+ * @since 2024
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationBenchmark {
+
+    public String account = "benchmark_user";
+    public String email = "Benchmark.User@Example.com";
+    public String phone = "13800138000";
+    public String password = "Benchmark123";
+    public String nickname = "<b>Benchmark</b> 用户";
+    public String injection = "admin' OR '1'='1' --";
+
+    @Benchmark
+    public void validateRegistration(Blackhole blackhole) {
+        blackhole.consume(ValidationUtils.isValidAccount(account));
+        blackhole.consume(ValidationUtils.isValidEmail(email));
+        blackhole.consume(ValidationUtils.isValidPhone(phone));
+        blackhole.consume(ValidationUtils.isValidPassword(password));
+        blackhole.consume(ValidationUtils.normalizeEmail(email));
+        blackhole.consume(ValidationUtils.normalizeAccount(account));
+    }
+
+    @Benchmark
+    public String sanitizeInput() {
+        return ValidationUtils.sanitizeInput(nickname);
+    }
+
+    @Benchmark
+    public boolean sqlInjectionClean() {
+        return SqlInjectionUtils.containsSqlInjection(account);
+    }
+
+    @Benchmark
+    public boolean sqlInjectionDetected() {
+        return SqlInjectionUtils.containsSqlInjection(injection);
+    }
+}
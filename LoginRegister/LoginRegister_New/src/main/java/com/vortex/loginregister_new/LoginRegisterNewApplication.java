@@ -3,6 +3,7 @@ package com.vortex.loginregister_new;
 import org.mybatis.spring.annotation.MapperScan;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * 登录注册模块主应用类
@@ -13,6 +14,7 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
  */
 @SpringBootApplication
 @MapperScan("com.vortex.loginregister_new.mapper")
+@EnableScheduling
 public class LoginRegisterNewApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,46 @@
+package com.vortex.loginregister_new.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 接口限流注解
+ * 由 {@link com.vortex.loginregister_new.interceptor.RateLimitInterceptor} 按客户端IP统一执行，
+ * 限流键为 key + ":" + IP；注解上的数值为默认值，可通过 rate-limit.rules.&lt;key&gt; 覆盖并在运行时重新加载
+ *
+ * @author Vortex
+ * @since 2024
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface RateLimited {
+
+    /**
+     * 规则名称，同时作为限流键前缀
+     */
+    String key();
+
+    /**
+     * 周期内允许的请求次数
+     */
+    int rate();
+
+    /**
+     * 周期（秒）
+     */
+    int period() default 60;
+
+    /**
+     * 突发容量：0 表示滑动窗口（周期内最多 rate 次），大于0时使用 GCRA 平滑限流
+     */
+    int burst() default 0;
+
+    /**
+     * 被限流时的提示信息
+     */
+    String message() default "请求过于频繁，请稍后再试";
+}
@@ -0,0 +1,196 @@
+package com.vortex.loginregister_new.config;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vortex.loginregister_new.annotation.RateLimited;
+import com.vortex.loginregister_new.service.RedisService;
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 限流规则
+ * {@link RateLimited} 注解上的数值为默认值，rate-limit.rules.&lt;key&gt; 中配置的字段会覆盖对应默认值：
+ * <pre>
+ * rate-limit:
+ *   rules:
+ *     login:
+ *       rate: 10
+ *       period: 60
+ * </pre>
+ * 配置文件中的规则只在启动时读取；管理员接口设置的运行时覆盖保存在Redis哈希中，优先于配置文件，
+ * 修改后通过Redis发布/订阅通知各节点从Redis重新加载，并定期重新加载兜底丢失的消息，新启动的节点同样生效
+ *
+ * @author Vortex
+ * @since 2024
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RateLimitRules {
+
+    private static final String OVERRIDES_KEY = "rate-limit:rules:overrides";
+    private static final String RELOAD_CHANNEL = "rate-limit:rules:reload-events";
+
+    private final Environment environment;
+    private final RedisService redisService;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * 配置文件中的规则覆盖（启动时读取）
+     */
+    private Map<String, Rule> configured = Collections.emptyMap();
+
+    /**
+     * 实际生效的规则覆盖（配置文件 + 运行时覆盖），整体替换以保证读取无锁
+     */
+    private volatile Map<String, Rule> overrides = Collections.emptyMap();
+
+    /**
+     * 是否已成功加载过运行时覆盖
+     */
+    private boolean loaded;
+
+    @PostConstruct
+    public void init() {
+        this.configured = Binder.get(environment)
+                .bind("rate-limit.rules", Bindable.mapOf(String.class, Rule.class))
+                .orElse(Collections.emptyMap());
+        reload();
+        listenerContainer.addMessageListener((message, pattern) -> reload(), new ChannelTopic(RELOAD_CHANNEL));
+    }
+
+    /**
+     * 从Redis重新加载运行时覆盖，与配置文件中的规则合并（本节点）
+     * Redis不可用时保留当前规则
+     */
+    public synchronized void reload() {
+        Map<String, Rule> rules = new LinkedHashMap<>(configured);
+        try {
+            redisService.hashEntries(OVERRIDES_KEY).forEach((key, json) -> {
+                try {
+                    rules.put(key, objectMapper.readValue(json, Rule.class));
+                } catch (JsonProcessingException e) {
+                    log.warn("限流规则覆盖解析失败，忽略 - {}: {}", key, json);
+                }
+            });
+        } catch (DataAccessException e) {
+            if (loaded) {
+                log.warn("Redis不可用，继续使用当前限流规则: {}", e.getMessage());
+                return;
+            }
+            log.warn("Redis不可用，暂只使用配置文件中的限流规则: {}", e.getMessage());
+        }
+        this.overrides = Collections.unmodifiableMap(rules);
+        this.loaded = true;
+        log.info("限流规则已加载，覆盖项: {}", overrides.keySet());
+    }
+
+    /**
+     * 定期重新加载，兜底丢失的发布/订阅消息
+     */
+    @Scheduled(fixedDelayString = "${rate-limit.rules-refresh-interval:300000}",
+            initialDelayString = "${rate-limit.rules-refresh-interval:300000}")
+    public void scheduledReload() {
+        reload();
+    }
+
+    /**
+     * 设置单个规则的运行时覆盖（所有节点生效，优先于配置文件）
+     *
+     * @throws DataAccessException Redis不可用时无法同步到其他节点，不做修改
+     */
+    public void override(String key, Rule rule) {
+        try {
+            redisService.hashPut(OVERRIDES_KEY, key, objectMapper.writeValueAsString(rule));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("限流规则序列化失败: " + key, e);
+        }
+        reloadAll();
+        log.info("限流规则已覆盖: {} -> {}", key, rule);
+    }
+
+    /**
+     * 移除单个规则的运行时覆盖（所有节点生效），恢复配置文件中的规则或注解默认值
+     *
+     * @throws DataAccessException Redis不可用时无法同步到其他节点，不做修改
+     */
+    public void remove(String key) {
+        redisService.hashDelete(OVERRIDES_KEY, key);
+        reloadAll();
+        log.info("限流规则覆盖已移除: {}", key);
+    }
+
+    /**
+     * 通知所有节点从Redis重新加载运行时覆盖
+     */
+    public void reloadAll() {
+        reload();
+        try {
+            redisService.publish(RELOAD_CHANNEL, "reload");
+        } catch (DataAccessException e) {
+            log.warn("Redis不可用，其他节点的限流规则将在定期加载时更新");
+        }
+    }
+
+    /**
+     * 获取当前所有规则覆盖
+     */
+    public Map<String, Rule> getOverrides() {
+        return overrides;
+    }
+
+    /**
+     * 合并注解默认值与覆盖项，得到实际生效的规则
+     */
+    public Rule resolve(RateLimited rateLimited) {
+        Rule override = overrides.get(rateLimited.key());
+        if (override == null) {
+            return new Rule(rateLimited.rate(), rateLimited.period(), rateLimited.burst());
+        }
+        return new Rule(
+                override.getRate() != null ? override.getRate() : rateLimited.rate(),
+                override.getPeriod() != null ? override.getPeriod() : rateLimited.period(),
+                override.getBurst() != null ? override.getBurst() : rateLimited.burst());
+    }
+
+    /**
+     * 限流规则，字段为空表示沿用注解默认值
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Rule {
+
+        /**
+         * 周期内允许的请求次数
+         */
+        private Integer rate;
+
+        /**
+         * 周期（秒）
+         */
+        private Integer period;
+
+        /**
+         * 突发容量，0 表示滑动窗口
+         */
+        private Integer burst;
+    }
+}
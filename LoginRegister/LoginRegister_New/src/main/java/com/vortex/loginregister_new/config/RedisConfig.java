@@ -1,17 +1,34 @@
 package com.vortex.loginregister_new.config;
 
+import com.vortex.loginregister_new.util.RedisKeys;
+import io.lettuce.core.SocketOptions;
+import io.lettuce.core.TimeoutOptions;
+import io.lettuce.core.cluster.ClusterClientOptions;
+import io.lettuce.core.cluster.ClusterTopologyRefreshOptions;
+import io.lettuce.core.cluster.models.partitions.RedisClusterNode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.data.redis.LettuceClientConfigurationBuilderCustomizer;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
+import java.time.Duration;
+
 /**
  * Redis 配置
+ * 单机、哨兵（spring.data.redis.sentinel.*）和集群（spring.data.redis.cluster.*）连接由 Spring Boot 按配置创建，
+ * 这里的模板和监听容器对三种模式通用；集群模式下键使用哈希标签布局（见 {@link RedisKeys}）
  *
  * @author 01Vortex
  * @since 2024
  */
+@Slf4j
 @Configuration
 public class RedisConfig {
 
@@ -34,5 +51,56 @@ public class RedisConfig {
         template.afterPropertiesSet();
         return template;
     }
+
+    /**
+     * Redis 键构建器：连接工厂为集群模式时启用哈希标签
+     */
+    @Bean
+    public RedisKeys redisKeys(RedisConnectionFactory connectionFactory) {
+        boolean cluster = connectionFactory instanceof LettuceConnectionFactory lettuce && lettuce.isClusterAware();
+        boolean sentinel = connectionFactory instanceof LettuceConnectionFactory factory && factory.isRedisSentinelAware();
+        log.info("Redis 连接模式: {}", cluster ? "集群（键使用哈希标签）" : sentinel ? "哨兵" : "单机");
+        return new RedisKeys(cluster);
+    }
+
+    /**
+     * Redis 集群客户端选项：拓扑自适应刷新（MOVED/ASK 重定向、节点失联时立即刷新）并定期刷新，
+     * 主从切换后无需重启即可路由到新的主节点；替换 Spring Boot 按 spring.data.redis.lettuce.cluster.refresh.* 创建的选项，
+     * 连接超时仍沿用 spring.data.redis.connect-timeout；未配置集群时不做修改
+     */
+    @Bean
+    public LettuceClientConfigurationBuilderCustomizer clusterClientOptionsCustomizer(
+            RedisProperties properties,
+            @Value("${redis.cluster.topology-refresh-period:60s}") Duration refreshPeriod) {
+        return builder -> {
+            if (properties.getCluster() == null) {
+                return;
+            }
+            ClusterClientOptions.Builder options = ClusterClientOptions.builder()
+                    .topologyRefreshOptions(ClusterTopologyRefreshOptions.builder()
+                            .enableAllAdaptiveRefreshTriggers()
+                            .enablePeriodicRefresh(refreshPeriod)
+                            .build())
+                    // 拓扑刷新后不再连接已标记为失败的节点
+                    .nodeFilter(node -> !node.is(RedisClusterNode.NodeFlag.FAIL)
+                            && !node.is(RedisClusterNode.NodeFlag.EVENTUAL_FAIL))
+                    // 与 Spring Boot 默认创建的客户端选项保持一致
+                    .timeoutOptions(TimeoutOptions.enabled());
+            if (properties.getConnectTimeout() != null) {
+                options.socketOptions(SocketOptions.builder().connectTimeout(properties.getConnectTimeout()).build());
+            }
+            builder.clientOptions(options.build());
+        };
+    }
+
+    /**
+     * Redis 发布/订阅监听容器（用于多节点间同步本地状态）
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        return container;
+    }
 }
 
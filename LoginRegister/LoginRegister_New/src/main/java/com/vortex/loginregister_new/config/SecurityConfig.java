@@ -74,6 +74,7 @@ public class SecurityConfig {
                     "/auth/login/code",
                     "/auth/forgot-password/**",
                     "/auth/refresh",
+                    "/.well-known/jwks.json",
                     "/oauth/**",
                     "/user/check/**",
                     "/uploads/**",
@@ -157,7 +158,7 @@ public class SecurityConfig {
         configuration.setMaxAge(3600L);
         
         // 暴露的响应头
-        configuration.setExposedHeaders(Arrays.asList("Authorization"));
+        configuration.setExposedHeaders(Arrays.asList("Authorization", "RateLimit-Remaining", "Retry-After"));
         
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
         source.registerCorsConfiguration("/**", configuration);
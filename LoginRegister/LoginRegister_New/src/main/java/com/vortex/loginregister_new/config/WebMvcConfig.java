@@ -1,10 +1,13 @@
 package com.vortex.loginregister_new.config;
 
+import com.vortex.loginregister_new.interceptor.RateLimitInterceptor;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.Ordered;
 import org.springframework.lang.NonNull;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
@@ -12,21 +15,30 @@ import java.nio.file.Paths;
 
 /**
  * Web MVC 配置
- * 用于配置静态资源访问
+ * 用于配置静态资源访问和拦截器
  *
  * @author Vortex
  * @since 2024
  */
 @Slf4j
 @Configuration
+@RequiredArgsConstructor
 public class WebMvcConfig implements WebMvcConfigurer, Ordered {
 
+    private final RateLimitInterceptor rateLimitInterceptor;
+
     @Value("${file.upload.path:uploads}")
     private String uploadPath;
 
     @Value("${file.upload.url-prefix:/api/uploads}")
     private String urlPrefix;
 
+    @Override
+    public void addInterceptors(@NonNull InterceptorRegistry registry) {
+        // 接口限流（只处理标注了 @RateLimited 的接口）
+        registry.addInterceptor(rateLimitInterceptor);
+    }
+
     @Override
     public void addResourceHandlers(@NonNull ResourceHandlerRegistry registry) {
         // 配置上传文件的静态资源访问
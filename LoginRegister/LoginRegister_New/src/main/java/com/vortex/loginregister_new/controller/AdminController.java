@@ -3,18 +3,25 @@ package com.vortex.loginregister_new.controller;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.vortex.loginregister_new.common.Constants;
+import com.vortex.loginregister_new.common.CursorPage;
 import com.vortex.loginregister_new.common.Result;
 import com.vortex.loginregister_new.common.ResultCode;
 import com.vortex.loginregister_new.config.MinIOConfig;
+import com.vortex.loginregister_new.config.RateLimitRules;
+import com.vortex.loginregister_new.entity.Role;
 import com.vortex.loginregister_new.entity.User;
 import com.vortex.loginregister_new.exception.BusinessException;
 import com.vortex.loginregister_new.service.JwtBlacklistService;
 import com.vortex.loginregister_new.service.MinIOService;
+import com.vortex.loginregister_new.service.RedisKeyspaceService;
+import com.vortex.loginregister_new.service.RoleDictionaryService;
 import com.vortex.loginregister_new.service.UserService;
+import com.vortex.loginregister_new.util.JwtKeyManager;
 import com.vortex.loginregister_new.util.ValidationUtils;
 import com.vortex.loginregister_new.util.WebUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -25,6 +32,7 @@ import jakarta.servlet.http.HttpServletRequest;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -48,6 +56,13 @@ public class AdminController {
     private final JwtBlacklistService jwtBlacklistService;
     private final MinIOService minIOService;
     private final MinIOConfig minIOConfig;
+    private final RateLimitRules rateLimitRules;
+    private final RedisKeyspaceService redisKeyspaceService;
+    private final RoleDictionaryService roleDictionaryService;
+    private final JwtKeyManager jwtKeyManager;
+
+    // 键空间报告单次最多抽样的键数
+    private static final long MAX_KEYSPACE_SAMPLE = 1_000_000;
 
     /**
      * 用户统计图表数据
@@ -115,6 +130,8 @@ public class AdminController {
 
     /**
      * 获取用户列表（分页，支持搜索）
+     * 传入 cursor 参数时使用游标分页：首页传空字符串，之后传上一页返回的 nextCursor，
+     * 不执行 COUNT 和 OFFSET，withTotal=true 时返回近似总数；未传 cursor 时为页码分页
      */
     @GetMapping("/users")
     @PreAuthorize("hasRole('ADMIN')")
@@ -123,6 +140,8 @@ public class AdminController {
             @RequestParam(defaultValue = "10") Integer size,
             @RequestParam(required = false) String keyword,
             @RequestParam(required = false) Integer status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean withTotal,
             HttpServletRequest request) {
         
         String adminAccount = getCurrentAdminAccount();
@@ -163,7 +182,22 @@ public class AdminController {
                 queryWrapper.eq("status", status);
             }
             
-            queryWrapper.orderByDesc("create_time");
+            // 游标分页：排序由 pageByCursor 追加
+            if (cursor != null) {
+                CursorPage<User> cursorPage = userService.pageByCursor(queryWrapper, cursor, size, withTotal);
+                Map<String, Object> pageData = new HashMap<>();
+                pageData.put("records", cursorPage.getRecords());
+                pageData.put("size", cursorPage.getSize());
+                pageData.put("hasNext", cursorPage.isHasNext());
+                pageData.put("nextCursor", cursorPage.getNextCursor());
+                pageData.put("total", cursorPage.getTotal());
+                log.info("管理员 {} 获取用户列表成功（游标分页） - 当前页记录数: {}",
+                        adminAccount, cursorPage.getRecords().size());
+                return Result.success("获取用户列表成功", pageData);
+            }
+            
+            // id 作为第二排序键，同一创建时间内翻页顺序稳定
+            queryWrapper.orderByDesc("create_time").orderByDesc("id");
             
             // 执行查询
             Page<User> userPage = userService.page(pageParam, queryWrapper);
@@ -358,9 +392,9 @@ public class AdminController {
                 throw new BusinessException(ResultCode.INTERNAL_SERVER_ERROR, "更新用户失败");
             }
             
-            // 如果修改了密码，标记用户的所有token失效（7天内密码修改后使token失效）
+            // 如果修改了密码，使用户此前签发的所有token失效
             if (passwordChanged) {
-                jwtBlacklistService.invalidateUserTokens(id, 7);
+                jwtBlacklistService.invalidateUserTokens(id);
                 log.info("管理员 {} 修改用户 {} 密码成功，已使该用户所有token失效", adminAccount, id);
             }
             
@@ -511,6 +545,105 @@ public class AdminController {
         }
     }
 
+    /**
+     * 获取限流规则覆盖项（未覆盖的接口使用 @RateLimited 注解上的默认值）
+     */
+    @GetMapping("/rate-limits")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<Map<String, RateLimitRules.Rule>> getRateLimitRules() {
+        return Result.success(rateLimitRules.getOverrides());
+    }
+
+    /**
+     * 运行时覆盖限流规则（所有节点立即生效，优先于配置文件）
+     */
+    @PutMapping("/rate-limits/{key}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<Void> updateRateLimitRule(@PathVariable String key, @RequestBody RateLimitRules.Rule rule) {
+        if ((rule.getRate() != null && rule.getRate() <= 0)
+                || (rule.getPeriod() != null && rule.getPeriod() <= 0)
+                || (rule.getBurst() != null && rule.getBurst() < 0)) {
+            throw new BusinessException(ResultCode.BAD_REQUEST, "限流参数无效，rate和period必须大于0，burst不能为负数");
+        }
+        try {
+            rateLimitRules.override(key, rule);
+        } catch (DataAccessException e) {
+            throw new BusinessException(ResultCode.INTERNAL_SERVER_ERROR, "Redis不可用，限流规则未修改");
+        }
+        log.info("管理员 {} 覆盖限流规则 - {}: {}", getCurrentAdminAccount(), key, rule);
+        return Result.<Void>success("限流规则已更新", null);
+    }
+
+    /**
+     * 移除限流规则的运行时覆盖，恢复配置文件中的规则或注解默认值
+     */
+    @DeleteMapping("/rate-limits/{key}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<Void> removeRateLimitRule(@PathVariable String key) {
+        try {
+            rateLimitRules.remove(key);
+        } catch (DataAccessException e) {
+            throw new BusinessException(ResultCode.INTERNAL_SERVER_ERROR, "Redis不可用，限流规则未修改");
+        }
+        log.info("管理员 {} 移除限流规则覆盖 - {}", getCurrentAdminAccount(), key);
+        return Result.<Void>success("限流规则已恢复默认", null);
+    }
+
+    /**
+     * 通知所有节点从Redis重新加载限流规则的运行时覆盖（配置文件只在启动时读取）
+     */
+    @PostMapping("/rate-limits/reload")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<Map<String, RateLimitRules.Rule>> reloadRateLimitRules() {
+        rateLimitRules.reloadAll();
+        log.info("管理员 {} 重新加载限流规则", getCurrentAdminAccount());
+        return Result.success(rateLimitRules.getOverrides());
+    }
+
+    /**
+     * 重新加载所有节点的JWT密钥（更新外部密钥文件后调用）
+     */
+    @PostMapping("/jwt-keys/reload")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<Map<String, Object>> reloadJwtKeys() {
+        try {
+            jwtKeyManager.reloadAll();
+        } catch (IllegalStateException e) {
+            throw new BusinessException(ResultCode.BAD_REQUEST, "JWT密钥加载失败: " + e.getMessage());
+        }
+        log.info("管理员 {} 重新加载JWT密钥，签发kid: {}", getCurrentAdminAccount(), jwtKeyManager.getActiveKid());
+        Map<String, Object> data = new HashMap<>();
+        data.put("activeKid", jwtKeyManager.getActiveKid());
+        data.put("kids", jwtKeyManager.getKids());
+        return Result.success(data);
+    }
+
+    /**
+     * 重新加载所有节点的角色字典（直接修改角色表后调用）
+     */
+    @PostMapping("/roles/reload")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<Collection<Role>> reloadRoleDictionary() {
+        roleDictionaryService.reloadAll();
+        log.info("管理员 {} 重新加载角色字典", getCurrentAdminAccount());
+        return Result.success(roleDictionaryService.getRoles());
+    }
+
+    /**
+     * Redis 键空间报告：按键前缀统计键数、内存、TTL 分布和命令频率
+     * 使用 SCAN 增量抽样，sample 为最多抽样的键数
+     */
+    @GetMapping("/redis/keyspace")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<RedisKeyspaceService.KeyspaceReport> getRedisKeyspaceReport(
+            @RequestParam(defaultValue = "10000") long sample) {
+        if (sample <= 0 || sample > MAX_KEYSPACE_SAMPLE) {
+            throw new BusinessException(ResultCode.BAD_REQUEST, "抽样键数必须在1到" + MAX_KEYSPACE_SAMPLE + "之间");
+        }
+        log.info("管理员 {} 获取Redis键空间报告，抽样: {}", getCurrentAdminAccount(), sample);
+        return Result.success(redisKeyspaceService.report(sample));
+    }
+
     /**
      * 获取当前管理员账号
      */
@@ -1,5 +1,6 @@
 package com.vortex.loginregister_new.controller;
 
+import com.vortex.loginregister_new.annotation.RateLimited;
 import com.vortex.loginregister_new.common.Constants;
 import com.vortex.loginregister_new.entity.Admin;
 import com.vortex.loginregister_new.entity.User;
@@ -9,13 +10,17 @@ import com.vortex.loginregister_new.service.JwtBlacklistService;
 import com.vortex.loginregister_new.service.LoginAttemptService;
 import com.vortex.loginregister_new.service.RateLimitService;
 import com.vortex.loginregister_new.service.RedisService;
+import com.vortex.loginregister_new.service.RefreshTokenFamilyService;
 import com.vortex.loginregister_new.service.UserService;
+import com.vortex.loginregister_new.util.JwtClaims;
 import com.vortex.loginregister_new.util.JwtUtil;
+import com.vortex.loginregister_new.util.RedisKeys;
 import com.vortex.loginregister_new.util.ValidationUtils;
 import com.vortex.loginregister_new.util.VerificationCodeUtils;
 import com.vortex.loginregister_new.util.WebUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
@@ -41,31 +46,37 @@ public class AuthController {
     private final AdminService adminService;
     private final PasswordEncoder passwordEncoder;
     private final RedisService redisService;
+    private final RedisKeys redisKeys;
     private final EmailService emailService;
     private final JwtUtil jwtUtil;
     private final LoginAttemptService loginAttemptService;
     private final RateLimitService rateLimitService;
     private final JwtBlacklistService jwtBlacklistService;
+    private final RefreshTokenFamilyService refreshTokenFamilyService;
 
     public AuthController(
             UserService userService,
             AdminService adminService,
             PasswordEncoder passwordEncoder,
             RedisService redisService,
+            RedisKeys redisKeys,
             @Autowired(required = false) EmailService emailService,
             JwtUtil jwtUtil,
             LoginAttemptService loginAttemptService,
             RateLimitService rateLimitService,
-            JwtBlacklistService jwtBlacklistService) {
+            JwtBlacklistService jwtBlacklistService,
+            RefreshTokenFamilyService refreshTokenFamilyService) {
         this.userService = userService;
         this.adminService = adminService;
         this.passwordEncoder = passwordEncoder;
         this.redisService = redisService;
+        this.redisKeys = redisKeys;
         this.emailService = emailService;
         this.jwtUtil = jwtUtil;
         this.loginAttemptService = loginAttemptService;
         this.rateLimitService = rateLimitService;
         this.jwtBlacklistService = jwtBlacklistService;
+        this.refreshTokenFamilyService = refreshTokenFamilyService;
     }
     
     // Redis Key 前缀
@@ -76,6 +87,7 @@ public class AuthController {
      * 用户登录（密码方式）
      */
     @PostMapping("/login")
+    @RateLimited(key = "login", rate = 5, period = 60)
     public Map<String, Object> login(@RequestBody Map<String, String> loginData, HttpServletRequest request) {
         String account = loginData.get("account");
         String password = loginData.get("password");
@@ -83,13 +95,6 @@ public class AuthController {
         
         Map<String, Object> result = new HashMap<>();
         
-        // 请求频率限制：每个IP每分钟最多5次登录尝试
-        if (rateLimitService.isRateLimited("login:" + clientIp, 5, 60)) {
-            result.put("code", 429);
-            result.put("message", "请求过于频繁，请稍后再试");
-            return result;
-        }
-        
         if (account == null || password == null) {
             result.put("code", 400);
             result.put("message", "账号和密码不能为空");
@@ -101,18 +106,15 @@ public class AuthController {
         
         try {
             // 检查账户是否被锁定
-            if (loginAttemptService.isBlocked(identifier)) {
-                long remainingTime = loginAttemptService.getLockRemainingTime(identifier);
+            long lockRemainingMillis = loginAttemptService.getLockRemainingMillis(identifier);
+            if (lockRemainingMillis > 0) {
                 result.put("code", 423);
-                result.put("message", String.format("账户已被锁定，请%d分钟后重试", remainingTime));
+                result.put("message", String.format("账户已被锁定，请%d分钟后重试", toMinutes(lockRemainingMillis)));
                 return result;
             }
             
-            // 支持账号或邮箱登录
-            User user = userService.findByAccount(identifier);
-            if (user == null && identifier.contains("@")) {
-                user = userService.findByEmail(identifier);
-            }
+            // 支持账号或邮箱登录（一次查询，账号优先）
+            User user = userService.findByLoginIdentifier(identifier);
             
             // 检查用户是否设置了密码
             if (user != null && (user.getPassword() == null || user.getPassword().trim().isEmpty())) {
@@ -130,20 +132,18 @@ public class AuthController {
             }
             
             if (user == null || !passwordValid) {
-                // 记录登录失败
-                if (user != null) {
-                    loginAttemptService.loginFailed(identifier);
-                    int remaining = loginAttemptService.getRemainingAttempts(identifier);
-                    result.put("code", 401);
-                    result.put("message", "账号或密码错误");
-                    if (remaining > 0) {
-                        result.put("remainingAttempts", remaining);
-            }
-                } else {
-                    // 用户不存在时也记录失败（防止用户枚举）
-                    loginAttemptService.loginFailed(identifier);
+                // 记录登录失败（用户不存在时也记录，防止用户枚举）
+                LoginAttemptService.AttemptResult attempt = loginAttemptService.loginFailed(identifier);
+                if (attempt.isLocked()) {
+                    result.put("code", 423);
+                    result.put("message", String.format("账户已被锁定，请%d分钟后重试",
+                            toMinutes(attempt.getLockRemainingMillis())));
+                    return result;
+                }
                 result.put("code", 401);
-                    result.put("message", "账号或密码错误");
+                result.put("message", "账号或密码错误");
+                if (user != null) {
+                    result.put("remainingAttempts", attempt.getRemainingAttempts());
                 }
                 return result;
             }
@@ -162,7 +162,7 @@ public class AuthController {
             userService.updateLastLoginInfo(user.getId(), clientIp);
             
             // 获取用户角色（默认为普通用户）
-            List<String> roles = userService.getUserRoles(user.getId());
+            List<String> roles = userService.getUserRoles(user);
             String role = roles != null && !roles.isEmpty() ? roles.get(0) : "ROLE_USER";
             
             // 生成JWT token（包含角色信息）
@@ -194,6 +194,7 @@ public class AuthController {
      * 用户注册
      */
     @PostMapping("/register")
+    @RateLimited(key = "register", rate = 10, period = 3600)
     public Map<String, Object> register(@RequestBody Map<String, String> registerData, HttpServletRequest request) {
         String nickname = registerData.get("nickname");
         String password = registerData.get("password");
@@ -204,13 +205,6 @@ public class AuthController {
         
         Map<String, Object> result = new HashMap<>();
         
-        // 请求频率限制：每个IP每小时最多10次注册尝试
-        if (rateLimitService.isRateLimited("register:" + clientIp, 10, 3600)) {
-            result.put("code", 429);
-            result.put("message", "请求过于频繁，请稍后再试");
-            return result;
-        }
-        
         // 验证密码强度
         String passwordError = ValidationUtils.getPasswordValidationError(password);
         if (passwordError != null) {
@@ -230,7 +224,7 @@ public class AuthController {
             }
             
             // 从 Redis 验证验证码
-            String redisKey = VERIFICATION_CODE_PREFIX + identifier;
+            String redisKey = redisKeys.key(VERIFICATION_CODE_PREFIX, identifier);
             String storedCode = redisService.get(redisKey);
             
             if (storedCode == null) {
@@ -313,16 +307,30 @@ public class AuthController {
         return candidate;
     }
 
+    /**
+     * 锁定剩余时间转换为分钟（向上取整）
+     */
+    private long toMinutes(long millis) {
+        return (millis + 59_999) / 60_000;
+    }
+
+    /**
+     * 限流等待时间转换为秒（向上取整）
+     */
+    private long toRetryAfterSeconds(RateLimitService.Decision decision) {
+        return (decision.getRetryAfterMillis() + 999) / 1000;
+    }
+
     /**
      * 发送验证码
      */
     @PostMapping("/send-code")
-    public Map<String, Object> sendVerificationCode(@RequestBody Map<String, String> data, HttpServletRequest request) {
+    @RateLimited(key = "send_code_ip", rate = 5, period = 60, burst = 3)
+    public Map<String, Object> sendVerificationCode(@RequestBody Map<String, String> data) {
         String account = data.get("account");
         if (account != null) {
             account = account.trim();
         }
-        String clientIp = WebUtils.getClientIp(request);
         
         Map<String, Object> result = new HashMap<>();
         
@@ -335,16 +343,12 @@ public class AuthController {
         // 标准化标识（邮箱统一小写，其他原样）
         String identifier = account.contains("@") ? account.toLowerCase() : account;
         
-        // 频率限制：每个标识每分钟最多发送1次，每个IP每分钟最多5次
-        if (rateLimitService.isRateLimited("send_code:" + identifier, 1, 60)) {
+        // 频率限制（GCRA 平滑限流）：每个标识每分钟1次（IP维度的限流由 @RateLimited 执行）
+        RateLimitService.Decision identifierDecision = rateLimitService.tryAcquireGcra("send_code:" + identifier, 1, 60, 1);
+        if (!identifierDecision.isAllowed()) {
             result.put("code", 429);
             result.put("message", "验证码发送过于频繁，请稍后再试");
-            return result;
-        }
-        
-        if (rateLimitService.isRateLimited("send_code_ip:" + clientIp, 5, 60)) {
-            result.put("code", 429);
-            result.put("message", "请求过于频繁，请稍后再试");
+            result.put("retryAfter", toRetryAfterSeconds(identifierDecision));
             return result;
         }
         
@@ -352,12 +356,12 @@ public class AuthController {
             // 生成6位数字验证码
             String code = VerificationCodeUtils.generateSixDigitCode();
             
-            // Redis 存储验证码（5分钟有效）
-            String redisKey = VERIFICATION_CODE_PREFIX + identifier;
-            redisService.set(redisKey, code, 5, TimeUnit.MINUTES);
-            
-            // 清除验证码尝试次数
-            redisService.delete(CODE_ATTEMPT_PREFIX + identifier);
+            // Redis 存储验证码（5分钟有效），同时清除验证码尝试次数（管道，一次往返）
+            String redisKey = redisKeys.key(VERIFICATION_CODE_PREFIX, identifier);
+            redisService.executePipelined(ops -> {
+                ops.opsForValue().set(redisKey, code, 5, TimeUnit.MINUTES);
+                ops.delete(redisKeys.key(CODE_ATTEMPT_PREFIX, identifier));
+            });
             
             log.info("验证码已生成并存储到Redis: {} (用户: {}, 有效期: 5分钟)", code, account);
             
@@ -405,6 +409,7 @@ public class AuthController {
      * 验证码登录
      */
     @PostMapping("/login/code")
+    @RateLimited(key = "login_code", rate = 5, period = 60, burst = 3)
     public Map<String, Object> loginWithCode(@RequestBody Map<String, String> loginData, HttpServletRequest request) {
         String account = loginData.get("account");
         String code = loginData.get("code");
@@ -414,13 +419,6 @@ public class AuthController {
         
         Map<String, Object> result = new HashMap<>();
         
-        // 请求频率限制
-        if (rateLimitService.isRateLimited("login_code:" + clientIp, 5, 60)) {
-            result.put("code", 429);
-            result.put("message", "请求过于频繁，请稍后再试");
-            return result;
-        }
-        
         if (account == null || account.isEmpty() || code == null || code.isEmpty()) {
             result.put("code", 400);
             result.put("message", "账号和验证码不能为空");
@@ -428,14 +426,13 @@ public class AuthController {
         }
         
         try {
-            // 从 Redis 验证验证码（邮箱统一小写）
+            // 从 Redis 读取验证码和尝试次数（邮箱统一小写，一次 MGET）
             String identifier = account.contains("@") ? account.toLowerCase() : account;
-            String redisKey = VERIFICATION_CODE_PREFIX + identifier;
-            String storedCode = redisService.get(redisKey);
-            
-            // 检查验证码尝试次数
-            String attemptKey = CODE_ATTEMPT_PREFIX + identifier;
-            String attemptStr = redisService.get(attemptKey);
+            String redisKey = redisKeys.key(VERIFICATION_CODE_PREFIX, identifier);
+            String attemptKey = redisKeys.key(CODE_ATTEMPT_PREFIX, identifier);
+            List<String> codeState = redisService.multiGet(List.of(redisKey, attemptKey));
+            String storedCode = codeState.get(0);
+            String attemptStr = codeState.get(1);
             int attempts = attemptStr == null ? 0 : Integer.parseInt(attemptStr);
             
             if (storedCode == null) {
@@ -448,8 +445,7 @@ public class AuthController {
                 attempts++;
                 if (attempts >= Constants.VerificationCode.MAX_ATTEMPTS) {
                     // 超过最大尝试次数，清除验证码
-                    redisService.delete(redisKey);
-                    redisService.delete(attemptKey);
+                    redisService.delete(List.of(redisKey, attemptKey));
                     result.put("code", 400);
                     result.put("message", "验证码错误次数过多，请重新获取验证码");
                     return result;
@@ -461,11 +457,8 @@ public class AuthController {
                 return result;
             }
             
-            // 查询用户（账号或邮箱）
-            User user = userService.findByAccount(identifier);
-            if (user == null && identifier.contains("@")) {
-                user = userService.findByEmail(identifier);
-            }
+            // 查询用户（账号或邮箱，一次查询，账号优先）
+            User user = userService.findByLoginIdentifier(identifier);
             
             if (user == null) {
                 result.put("code", 401);
@@ -487,14 +480,13 @@ public class AuthController {
             }
             
             // 登录成功，清除验证码和尝试次数
-            redisService.delete(redisKey);
-            redisService.delete(attemptKey);
+            redisService.delete(List.of(redisKey, attemptKey));
             
             // 更新登录信息
             userService.updateLastLoginInfo(user.getId(), clientIp);
             
             // 获取用户角色（默认为普通用户）
-            List<String> roles = userService.getUserRoles(user.getId());
+            List<String> roles = userService.getUserRoles(user);
             String role = roles != null && !roles.isEmpty() ? roles.get(0) : "ROLE_USER";
             
             // 生成JWT token（包含角色信息）
@@ -526,6 +518,7 @@ public class AuthController {
      * 管理员登录（只能登录，不能注册）
      */
     @PostMapping("/admin/login")
+    @RateLimited(key = "admin_login", rate = 5, period = 60)
     public Map<String, Object> adminLogin(@RequestBody Map<String, String> loginData, HttpServletRequest request) {
         String account = loginData.get("account");
         String password = loginData.get("password");
@@ -533,13 +526,6 @@ public class AuthController {
         
         Map<String, Object> result = new HashMap<>();
         
-        // 请求频率限制
-        if (rateLimitService.isRateLimited("admin_login:" + clientIp, 5, 60)) {
-            result.put("code", 429);
-            result.put("message", "请求过于频繁，请稍后再试");
-            return result;
-        }
-        
         if (account == null || password == null) {
             result.put("code", 400);
             result.put("message", "账号和密码不能为空");
@@ -785,17 +771,18 @@ public class AuthController {
         }
         
         try {
-            // 验证刷新token
-            if (!jwtUtil.validateToken(refreshToken) || !jwtUtil.isRefreshToken(refreshToken)) {
+            // 验证刷新token（只解析一次）
+            JwtClaims claims = jwtUtil.parseToken(refreshToken);
+            if (claims == null || !claims.isRefreshToken()) {
                 result.put("code", 401);
                 result.put("message", "无效的刷新令牌");
                 return result;
             }
             
             // 获取用户信息
-            String account = jwtUtil.getAccountFromToken(refreshToken);
-            Long userId = jwtUtil.getUserIdFromToken(refreshToken);
-            String role = jwtUtil.getRoleFromToken(refreshToken);
+            String account = claims.getAccount();
+            Long userId = claims.getUserId();
+            String role = claims.getRole();
             
             if (account == null || userId == null) {
                 result.put("code", 401);
@@ -803,22 +790,54 @@ public class AuthController {
                 return result;
             }
             
-            // 检查用户token是否已失效（密码修改后）
-            // 只检查用户token，不检查管理员token
-            if (!"ROLE_ADMIN".equals(role) && jwtBlacklistService.isUserTokenInvalidated(userId)) {
+            // 轮换前检查刷新token是否已注销、用户token是否已整体失效（密码修改后，管理员token不参与）
+            JwtBlacklistService.RevocationStatus revocationStatus = jwtBlacklistService.checkRevocation(refreshToken, claims);
+            if (revocationStatus == JwtBlacklistService.RevocationStatus.BLACKLISTED) {
+                result.put("code", 401);
+                result.put("message", "刷新令牌已失效，请重新登录");
+                return result;
+            }
+            if (revocationStatus == JwtBlacklistService.RevocationStatus.USER_INVALIDATED) {
                 result.put("code", 401);
                 result.put("message", "密码已修改，请重新登录");
                 return result;
             }
             
+            // 轮换刷新令牌：旧令牌随即作废，重放旧令牌会吊销整个家族
+            String newRefreshToken;
+            if (claims.getFamilyId() != null) {
+                Long generation = refreshTokenFamilyService.rotate(
+                        claims.getFamilyId(), claims.getGeneration(), jwtUtil.getRefreshTokenExpiration(role));
+                if (generation == null) {
+                    result.put("code", 401);
+                    result.put("message", "刷新令牌已失效，请重新登录");
+                    return result;
+                }
+                newRefreshToken = jwtUtil.generateRefreshToken(userId, account, role, claims.getFamilyId(), generation);
+            } else {
+                // 升级前或Redis不可用时签发的刷新令牌没有家族：先标记为已使用（只能使用一次），再迁移到新家族
+                if (!refreshTokenFamilyService.consumeUnbound(refreshToken, claims)) {
+                    result.put("code", 401);
+                    result.put("message", "刷新令牌已失效，请重新登录");
+                    return result;
+                }
+                newRefreshToken = jwtUtil.generateRefreshToken(userId, account, role);
+            }
+            
             // 生成新的访问令牌（包含角色信息）
             String newAccessToken = jwtUtil.generateAccessToken(userId, account, role);
             
             result.put("code", 200);
             result.put("message", "刷新成功");
             result.put("accessToken", newAccessToken);
+            result.put("refreshToken", newRefreshToken);
             result.put("tokenType", "Bearer");
             
+        } catch (DataAccessException e) {
+            // 无法确认刷新令牌是否已被使用，拒绝刷新而不是签发可重放的令牌
+            log.warn("Redis不可用，暂停刷新令牌: {}", e.getMessage());
+            result.put("code", 503);
+            result.put("message", "服务暂时不可用，请稍后重试");
         } catch (Exception e) {
             log.error("刷新令牌失败: ", e);
             result.put("code", 500);
@@ -972,8 +991,8 @@ public class AuthController {
             user.setPassword(passwordEncoder.encode(newPassword));
             userService.updateById(user);
             
-            // 标记用户的所有token失效（7天内密码修改后使token失效）
-            jwtBlacklistService.invalidateUserTokens(user.getId(), 7);
+            // 使用户此前签发的所有token失效
+            jwtBlacklistService.invalidateUserTokens(user.getId());
             
             // 清除 Redis 中的验证码
             redisService.delete(redisKey);
@@ -11,6 +11,7 @@ import com.vortex.loginregister_new.service.RedisService;
 import com.vortex.loginregister_new.service.SocialLoginService;
 import com.vortex.loginregister_new.service.UserService;
 import com.vortex.loginregister_new.service.UserSocialService;
+import com.vortex.loginregister_new.util.RedisKeys;
 import com.vortex.loginregister_new.util.ValidationUtils;
 import com.vortex.loginregister_new.util.WebUtils;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -49,6 +50,7 @@ public class UserController {
     private final PasswordEncoder passwordEncoder;
     private final SocialLoginService socialLoginService;
     private final RedisService redisService;
+    private final RedisKeys redisKeys;
     private final UserSocialService userSocialService;
     
     // Redis Key 前缀
@@ -58,21 +60,34 @@ public class UserController {
 
     /**
      * 查询用户列表（分页）
+     * 传入 cursor 参数时使用游标分页（首页传空字符串，之后传上一页返回的 nextCursor），未传时为页码分页
      */
     @GetMapping("/list")
     public Map<String, Object> list(
             @RequestParam(defaultValue = "1") Integer page,
-            @RequestParam(defaultValue = "10") Integer size) {
+            @RequestParam(defaultValue = "10") Integer size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean withTotal) {
         
-        Page<User> pageParam = new Page<>(page, size);
         QueryWrapper<User> queryWrapper = new QueryWrapper<>();
+        
+        Map<String, Object> result = new HashMap<>();
+        result.put("code", 200);
+        if (cursor != null) {
+            if (size < 1 || size > 100) {
+                size = 10;
+            }
+            // 逻辑删除条件由 @TableLogic 自动追加，不额外添加筛选条件，总数可取表统计信息而不必 COUNT
+            result.put("data", userService.pageByCursor(queryWrapper, cursor, size, withTotal));
+            return result;
+        }
+        
         queryWrapper.eq("deleted", 0);
-        queryWrapper.orderByDesc("create_time");
+        Page<User> pageParam = new Page<>(page, size);
+        queryWrapper.orderByDesc("create_time").orderByDesc("id");
         
         Page<User> userPage = userService.page(pageParam, queryWrapper);
         
-        Map<String, Object> result = new HashMap<>();
-        result.put("code", 200);
         result.put("data", userPage);
         return result;
     }
@@ -352,7 +367,7 @@ public class UserController {
                     
                     // 从 Redis 验证验证码（邮箱统一小写）
                     String identifier = email.toLowerCase();
-                    String redisKey = VERIFICATION_CODE_PREFIX + identifier;
+                    String redisKey = redisKeys.key(VERIFICATION_CODE_PREFIX, identifier);
                     String storedCode = redisService.get(redisKey);
                     
                     if (storedCode == null) {
@@ -368,8 +383,7 @@ public class UserController {
                     }
                     
                     // 验证码正确，清除验证码
-                    redisService.delete(redisKey);
-                    redisService.delete(CODE_ATTEMPT_PREFIX + identifier);
+                    redisService.delete(List.of(redisKey, redisKeys.key(CODE_ATTEMPT_PREFIX, identifier)));
                     
                     user.setEmail(email);
                     log.info("用户 {} 绑定/更换邮箱成功: {}, IP: {}", account, email, WebUtils.getClientIp(request));
@@ -426,7 +440,7 @@ public class UserController {
             }
             
             String account = authentication.getName();
-            User user = userService.findByAccount(account);
+            User user = userService.findByAccountWithPassword(account);
             
             if (user == null) {
                 result.put("code", 404);
@@ -474,7 +488,7 @@ public class UserController {
                     
                     // 从 Redis 验证验证码（使用用户邮箱）
                     String identifier = user.getEmail().toLowerCase();
-                    String redisKey = VERIFICATION_CODE_PREFIX + identifier;
+                    String redisKey = redisKeys.key(VERIFICATION_CODE_PREFIX, identifier);
                     String storedCode = redisService.get(redisKey);
                     
                     if (storedCode == null) {
@@ -490,8 +504,7 @@ public class UserController {
                     }
                     
                     // 验证码正确，清除验证码
-                    redisService.delete(redisKey);
-                    redisService.delete(CODE_ATTEMPT_PREFIX + identifier);
+                    redisService.delete(List.of(redisKey, redisKeys.key(CODE_ATTEMPT_PREFIX, identifier)));
                 } else {
                     // 两种方式都没有提供
                     result.put("code", 400);
@@ -526,7 +539,7 @@ public class UserController {
                     
                     // 从 Redis 验证验证码（使用用户邮箱）
                     String identifier = user.getEmail().toLowerCase();
-                    String redisKey = VERIFICATION_CODE_PREFIX + identifier;
+                    String redisKey = redisKeys.key(VERIFICATION_CODE_PREFIX, identifier);
                     String storedCode = redisService.get(redisKey);
                     
                     if (storedCode == null) {
@@ -542,8 +555,7 @@ public class UserController {
                     }
                     
                     // 验证码正确，清除验证码
-                    redisService.delete(redisKey);
-                    redisService.delete(CODE_ATTEMPT_PREFIX + identifier);
+                    redisService.delete(List.of(redisKey, redisKeys.key(CODE_ATTEMPT_PREFIX, identifier)));
                 }
             }
             
@@ -800,7 +812,7 @@ public class UserController {
             }
             
             String account = authentication.getName();
-            User user = userService.findByAccount(account);
+            User user = userService.findByAccountWithPassword(account);
             
             if (user == null) {
                 result.put("code", 404);
@@ -0,0 +1,44 @@
+package com.vortex.loginregister_new.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 角色实体
+ *
+ * @author Vortex
+ * @since 2024
+ */
+@Data
+@TableName("role")
+public class Role implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id;
+
+    @TableField("role_name")
+    private String roleName;
+
+    @TableField("role_code")
+    private String roleCode;
+
+    @TableField("description")
+    private String description;
+
+    /**
+     * 状态：0-禁用，1-正常
+     */
+    @TableField("status")
+    private Integer status;
+
+    @TableField(value = "create_time", fill = FieldFill.INSERT)
+    private LocalDateTime createTime;
+
+    @TableField(value = "update_time", fill = FieldFill.INSERT_UPDATE)
+    private LocalDateTime updateTime;
+}
@@ -1,11 +1,13 @@
 package com.vortex.loginregister_new.entity;
 
 import com.baomidou.mybatisplus.annotation.*;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import lombok.experimental.Accessors;
 
 import java.io.Serializable;
 import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * 用户实体类
@@ -104,5 +106,12 @@ public class User implements Serializable {
     @TableLogic
     @TableField("deleted")
     private Integer deleted;
+
+    /**
+     * 角色ID列表（仅登录查询随用户一起加载，其余查询为null）
+     */
+    @JsonIgnore
+    @TableField(exist = false)
+    private List<Long> roleIds;
 }
 
@@ -1,6 +1,7 @@
 package com.vortex.loginregister_new.filter;
 
 import com.vortex.loginregister_new.service.JwtBlacklistService;
+import com.vortex.loginregister_new.util.JwtClaims;
 import com.vortex.loginregister_new.util.JwtUtil;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -82,19 +83,20 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         try {
             token = extractTokenFromRequest(request);
 
-            if (token != null) {
-                // 验证token
-                boolean isValid = jwtUtil.validateToken(token);
-                
-                if (!isValid) {
-                    // Token无效，记录错误
-                    log.warn("Token验证失败 - URI: {}", requestURI);
-                }
+            // 只解析一次token，后续检查全部基于已验证的声明
+            JwtClaims claims = token != null ? jwtUtil.parseToken(token) : null;
+
+            if (token != null && claims == null) {
+                // Token无效，记录错误
+                log.warn("Token验证失败 - URI: {}", requestURI);
             }
 
-            if (token != null && jwtUtil.validateToken(token)) {
+            if (claims != null) {
+                // 一次性检查token是否已注销、用户token是否已整体失效（密码修改后）
+                JwtBlacklistService.RevocationStatus revocationStatus = jwtBlacklistService.checkRevocation(token, claims);
+
                 // 检查token是否在黑名单中（已注销）
-                if (jwtBlacklistService.isBlacklisted(token)) {
+                if (revocationStatus == JwtBlacklistService.RevocationStatus.BLACKLISTED) {
                     log.warn("尝试使用已注销的token访问: {}", request.getRequestURI());
                     SecurityContextHolder.clearContext();
                     response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
@@ -106,7 +108,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                 }
                 
                 // 验证是否为刷新token，刷新token不能用于普通API访问
-                if (jwtUtil.isRefreshToken(token)) {
+                if (claims.isRefreshToken()) {
                     log.warn("尝试使用刷新token访问API: {}", request.getRequestURI());
                     SecurityContextHolder.clearContext();
                     response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
@@ -117,14 +119,14 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                     return;
                 }
 
-                String account = jwtUtil.getAccountFromToken(token);
-                Long userId = jwtUtil.getUserIdFromToken(token);
-                String role = jwtUtil.getRoleFromToken(token);
+                String account = claims.getAccount();
+                Long userId = claims.getUserId();
+                String role = claims.getRole();
 
                 if (account != null && userId != null) {
                     // 检查用户token是否已失效（密码修改后）
                     // 只检查用户token，不检查管理员token（管理员密码修改后应该重新登录）
-                    if (!"ROLE_ADMIN".equals(role) && jwtBlacklistService.isUserTokenInvalidated(userId)) {
+                    if (revocationStatus == JwtBlacklistService.RevocationStatus.USER_INVALIDATED) {
                         log.warn("尝试使用已失效的用户token访问: {}, 用户ID: {}", request.getRequestURI(), userId);
                         SecurityContextHolder.clearContext();
                         response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
@@ -0,0 +1,65 @@
+package com.vortex.loginregister_new.interceptor;
+
+import com.vortex.loginregister_new.annotation.RateLimited;
+import com.vortex.loginregister_new.config.RateLimitRules;
+import com.vortex.loginregister_new.service.RateLimitService;
+import com.vortex.loginregister_new.util.WebUtils;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * 接口限流拦截器
+ * 对标注 {@link RateLimited} 的接口按客户端IP限流，每个请求只调用一次限流器，
+ * 并通过 RateLimit-Remaining / Retry-After 响应头告知客户端剩余次数和需等待的秒数
+ *
+ * @author Vortex
+ * @since 2024
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    private final RateLimitService rateLimitService;
+    private final RateLimitRules rateLimitRules;
+
+    @Override
+    public boolean preHandle(@NonNull HttpServletRequest request,
+                             @NonNull HttpServletResponse response,
+                             @NonNull Object handler) throws Exception {
+        if (!(handler instanceof HandlerMethod handlerMethod)) {
+            return true;
+        }
+        RateLimited rateLimited = handlerMethod.getMethodAnnotation(RateLimited.class);
+        if (rateLimited == null) {
+            return true;
+        }
+
+        RateLimitRules.Rule rule = rateLimitRules.resolve(rateLimited);
+        String key = rateLimited.key() + ":" + WebUtils.getClientIp(request);
+        RateLimitService.Decision decision = rule.getBurst() > 0
+                ? rateLimitService.tryAcquireGcra(key, rule.getRate(), rule.getPeriod(), rule.getBurst())
+                : rateLimitService.tryAcquire(key, rule.getRate(), rule.getPeriod());
+
+        response.setHeader("RateLimit-Remaining", String.valueOf(decision.getRemaining()));
+        if (decision.isAllowed()) {
+            return true;
+        }
+
+        long retryAfterSeconds = (decision.getRetryAfterMillis() + 999) / 1000;
+        response.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+        response.setStatus(429);
+        response.setContentType("application/json;charset=UTF-8");
+        response.setCharacterEncoding("UTF-8");
+        response.getWriter().write("{\"code\":429,\"message\":\"" + rateLimited.message()
+                + "\",\"retryAfter\":" + retryAfterSeconds + "}");
+        response.getWriter().flush();
+        return false;
+    }
+}
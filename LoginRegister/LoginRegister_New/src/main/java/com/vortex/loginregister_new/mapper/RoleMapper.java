@@ -0,0 +1,15 @@
+package com.vortex.loginregister_new.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.vortex.loginregister_new.entity.Role;
+import org.apache.ibatis.annotations.Mapper;
+
+/**
+ * 角色 Mapper
+ *
+ * @author Vortex
+ * @since 2024
+ */
+@Mapper
+public interface RoleMapper extends BaseMapper<Role> {
+}
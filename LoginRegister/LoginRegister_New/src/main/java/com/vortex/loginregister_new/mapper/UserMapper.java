@@ -31,6 +31,14 @@ public interface UserMapper extends BaseMapper<User> {
      */
     User findByEmail(@Param("email") String email);
 
+    /**
+     * 根据登录标识（账号或邮箱）查询用户及其角色ID（roleIds），账号优先
+     *
+     * @param identifier 登录标识，邮箱需已转为小写
+     * @return 用户对象
+     */
+    User findByLoginIdentifier(@Param("identifier") String identifier);
+
     /**
      * 根据手机号查询用户
      *
@@ -47,5 +55,11 @@ public interface UserMapper extends BaseMapper<User> {
      * @return 影响行数
      */
     int updateLastLoginInfo(@Param("userId") Long userId, @Param("loginIp") String loginIp);
-}
 
+    /**
+     * 按表统计信息估算用户表行数（含逻辑删除的行），不扫描表
+     *
+     * @return 估算行数
+     */
+    Long estimateRowCount();
+}
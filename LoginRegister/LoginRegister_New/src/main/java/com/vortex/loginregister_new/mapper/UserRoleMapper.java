@@ -20,10 +20,5 @@ public interface UserRoleMapper extends BaseMapper<UserRole> {
      * 根据用户ID查询角色ID列表
      */
     List<Long> findRoleIdsByUserId(@Param("userId") Long userId);
-
-    /**
-     * 根据用户ID查询角色编码列表
-     */
-    List<String> findRoleCodesByUserId(@Param("userId") Long userId);
 }
 
@@ -1,5 +1,7 @@
 package com.vortex.loginregister_new.service;
 
+import com.vortex.loginregister_new.util.JwtClaims;
+
 /**
  * JWT黑名单服务接口
  * 用于管理已注销的token
@@ -8,6 +10,28 @@ package com.vortex.loginregister_new.service;
  * @since 2024
  */
 public interface JwtBlacklistService {
+
+    /**
+     * token吊销状态
+     */
+    enum RevocationStatus {
+        /** 有效 */
+        ACTIVE,
+        /** 已注销（在黑名单中） */
+        BLACKLISTED,
+        /** 用户token已整体失效（如密码已修改） */
+        USER_INVALIDATED
+    }
+
+    /**
+     * 一次性检查token是否已注销以及用户token是否已整体失效
+     * 优先使用本地状态，需要访问Redis时合并为一次批量读取
+     *
+     * @param token  JWT token
+     * @param claims 已验证的声明
+     * @return 吊销状态
+     */
+    RevocationStatus checkRevocation(String token, JwtClaims claims);
     
     /**
      * 将token添加到黑名单
@@ -23,6 +47,15 @@ public interface JwtBlacklistService {
      * @return 是否在黑名单中
      */
     boolean isBlacklisted(String token);
+
+    /**
+     * 检查token是否在黑名单中（使用已解析的声明，避免重复验证签名）
+     *
+     * @param token  JWT token
+     * @param claims 已验证的声明
+     * @return 是否在黑名单中
+     */
+    boolean isBlacklisted(String token, JwtClaims claims);
     
     /**
      * 清除过期的黑名单条目
@@ -30,18 +63,19 @@ public interface JwtBlacklistService {
     void cleanExpiredEntries();
     
     /**
-     * 标记用户的所有token失效（用于密码修改后使token失效）
+     * 使用户此前签发的所有token失效（用于密码修改后使token失效）
+     * 之后重新登录签发的token不受影响
      *
      * @param userId 用户ID
-     * @param expirationDays token失效标记的有效期（天）
      */
-    void invalidateUserTokens(Long userId, int expirationDays);
+    void invalidateUserTokens(Long userId);
     
     /**
      * 检查用户的token是否已失效
      *
-     * @param userId 用户ID
+     * @param userId     用户ID
+     * @param tokenEpoch token签发时的用户纪元
      * @return 是否已失效
      */
-    boolean isUserTokenInvalidated(Long userId);
+    boolean isUserTokenInvalidated(Long userId, long tokenEpoch);
 }
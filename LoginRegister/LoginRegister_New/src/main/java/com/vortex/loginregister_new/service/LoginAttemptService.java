@@ -1,14 +1,26 @@
 package com.vortex.loginregister_new.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.vortex.loginregister_new.util.RedisKeys;
 import lombok.RequiredArgsConstructor;
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 /**
  * 登录尝试服务
  * 用于记录登录失败次数，防止暴力破解
+ * 失败计数、达到阈值时锁定在一个 Lua 脚本中原子完成，并发的错误密码请求无法越过 MAX_ATTEMPT；
+ * 两个键以标识为哈希标签构建，集群模式下位于同一槽位
+ *
+ * Redis 不可用时降级为本节点内存计数（容量有限），降级期间产生的锁定在 Redis 恢复后仍然有效
  *
  * @author Vortex
  * @since 2024
@@ -19,6 +31,7 @@ import java.util.concurrent.TimeUnit;
 public class LoginAttemptService {
 
     private final RedisService redisService;
+    private final RedisKeys redisKeys;
 
     // Redis Key 前缀
     private static final String LOGIN_ATTEMPT_PREFIX = "login_attempt:";
@@ -30,87 +43,194 @@ public class LoginAttemptService {
     private static final int LOCK_TIME_MINUTES = 15;
     // 尝试记录过期时间（分钟）
     private static final int ATTEMPT_EXPIRE_MINUTES = 30;
+    // 降级计数最多保存的账号数
+    private static final int FALLBACK_MAX_SIZE = 100_000;
+
+    /**
+     * Redis 不可用时的本地失败记录：标识 -> 失败次数与锁定截止时间
+     */
+    private final Cache<String, LocalAttempt> localAttempts = Caffeine.newBuilder()
+            .maximumSize(FALLBACK_MAX_SIZE)
+            .expireAfterAccess(ATTEMPT_EXPIRE_MINUTES, TimeUnit.MINUTES)
+            .build();
+
+    /**
+     * 记录登录失败：KEYS[1]=失败次数键, KEYS[2]=锁定键
+     * ARGV[1]=最大尝试次数, ARGV[2]=失败记录有效期（毫秒）, ARGV[3]=锁定时长（毫秒）
+     * 返回 {剩余尝试次数, 锁定剩余毫秒数}
+     */
+    private static final RedisScript<List> LOGIN_FAILED_SCRIPT = new DefaultRedisScript<>(
+            "local lockTtl = redis.call('PTTL', KEYS[2]) " +
+            "if lockTtl > 0 then return {0, lockTtl} end " +
+            "local attempts = redis.call('INCR', KEYS[1]) " +
+            "if attempts >= tonumber(ARGV[1]) then " +
+            // 锁定账户，并清除失败次数记录（锁定期间不再增加）
+            "  redis.call('SET', KEYS[2], 'locked', 'PX', ARGV[3]) " +
+            "  redis.call('DEL', KEYS[1]) " +
+            "  return {0, tonumber(ARGV[3])} " +
+            "end " +
+            "redis.call('PEXPIRE', KEYS[1], ARGV[2]) " +
+            "return {tonumber(ARGV[1]) - attempts, 0}",
+            List.class);
 
     /**
      * 记录登录成功，清除失败记录
      */
     public void loginSucceeded(String identifier) {
-        String key = LOGIN_ATTEMPT_PREFIX + identifier.toLowerCase();
-        redisService.delete(key);
-        redisService.delete(ACCOUNT_LOCKED_PREFIX + identifier.toLowerCase());
+        String normalized = identifier.toLowerCase();
+        localAttempts.invalidate(normalized);
+        try {
+            redisService.delete(attemptKeys(normalized));
+        } catch (DataAccessException e) {
+            log.warn("Redis不可用，未能清除用户 {} 的失败记录: {}", identifier, e.getMessage());
+        }
         log.info("用户 {} 登录成功，清除失败记录", identifier);
     }
 
     /**
-     * 记录登录失败
+     * 记录登录失败（一次Redis往返）
+     *
+     * @return 剩余尝试次数和锁定剩余时间；达到最大次数时账户被锁定
      */
-    public void loginFailed(String identifier) {
-        String key = LOGIN_ATTEMPT_PREFIX + identifier.toLowerCase();
-        String attemptsStr = redisService.get(key);
-        int attempts = attemptsStr == null ? 0 : Integer.parseInt(attemptsStr);
-        attempts++;
-
-        if (attempts >= MAX_ATTEMPT) {
-            // 锁定账户
-            lockAccount(identifier);
+    public AttemptResult loginFailed(String identifier) {
+        String normalized = identifier.toLowerCase();
+        AttemptResult attempt;
+        try {
+            List<?> result = redisService.execute(LOGIN_FAILED_SCRIPT,
+                    attemptKeys(normalized),
+                    String.valueOf(MAX_ATTEMPT),
+                    String.valueOf(TimeUnit.MINUTES.toMillis(ATTEMPT_EXPIRE_MINUTES)),
+                    String.valueOf(TimeUnit.MINUTES.toMillis(LOCK_TIME_MINUTES)));
+            attempt = new AttemptResult(((Number) result.get(0)).intValue(), ((Number) result.get(1)).longValue());
+        } catch (DataAccessException e) {
+            attempt = localAttempts.get(normalized, k -> new LocalAttempt()).fail();
+        }
+        if (attempt.isLocked()) {
             log.warn("用户 {} 登录失败次数过多，账户已锁定", identifier);
         } else {
-            // 更新失败次数
-            redisService.set(key, String.valueOf(attempts), ATTEMPT_EXPIRE_MINUTES, TimeUnit.MINUTES);
-            log.warn("用户 {} 登录失败，当前失败次数: {}/{}", identifier, attempts, MAX_ATTEMPT);
+            log.warn("用户 {} 登录失败，当前失败次数: {}/{}", identifier,
+                    MAX_ATTEMPT - attempt.getRemainingAttempts(), MAX_ATTEMPT);
         }
+        return attempt;
     }
 
     /**
      * 检查账户是否被锁定
      */
     public boolean isBlocked(String identifier) {
-        String lockKey = ACCOUNT_LOCKED_PREFIX + identifier.toLowerCase();
-        String locked = redisService.get(lockKey);
-        return locked != null;
+        return getLockRemainingMillis(identifier) > 0;
     }
 
     /**
      * 获取剩余尝试次数
      */
     public int getRemainingAttempts(String identifier) {
-        String key = LOGIN_ATTEMPT_PREFIX + identifier.toLowerCase();
-        String attemptsStr = redisService.get(key);
-        int attempts = attemptsStr == null ? 0 : Integer.parseInt(attemptsStr);
-        return Math.max(0, MAX_ATTEMPT - attempts);
+        String normalized = identifier.toLowerCase();
+        try {
+            String attemptsStr = redisService.get(redisKeys.key(LOGIN_ATTEMPT_PREFIX, normalized));
+            int attempts = attemptsStr == null ? 0 : Integer.parseInt(attemptsStr);
+            return Math.max(0, MAX_ATTEMPT - attempts);
+        } catch (DataAccessException e) {
+            LocalAttempt local = localAttempts.getIfPresent(normalized);
+            return local != null ? local.remainingAttempts() : MAX_ATTEMPT;
+        }
     }
 
     /**
      * 获取账户锁定剩余时间（分钟）
      */
     public long getLockRemainingTime(String identifier) {
-        String lockKey = ACCOUNT_LOCKED_PREFIX + identifier.toLowerCase();
-        Long ttl = redisService.getExpire(lockKey, TimeUnit.MINUTES);
-        return ttl != null && ttl > 0 ? ttl : 0;
+        return TimeUnit.MILLISECONDS.toMinutes(getLockRemainingMillis(identifier));
     }
 
     /**
-     * 锁定账户
+     * 获取账户锁定剩余时间（毫秒），未锁定返回0
+     * 锁定标记经近端缓存读取，绝大多数未锁定的账户无需访问 Redis；Redis 不可用时只检查本地锁定记录
      */
-    private void lockAccount(String identifier) {
-        String lockKey = ACCOUNT_LOCKED_PREFIX + identifier.toLowerCase();
-        String attemptKey = LOGIN_ATTEMPT_PREFIX + identifier.toLowerCase();
-        
-        // 设置锁定标记
-        redisService.set(lockKey, "locked", LOCK_TIME_MINUTES, TimeUnit.MINUTES);
-        // 清除失败次数记录（锁定期间不再增加）
-        redisService.delete(attemptKey);
+    public long getLockRemainingMillis(String identifier) {
+        String normalized = identifier.toLowerCase();
+        LocalAttempt local = localAttempts.getIfPresent(normalized);
+        long localRemaining = local != null ? local.lockRemainingMillis() : 0;
+        try {
+            String lockKey = redisKeys.key(ACCOUNT_LOCKED_PREFIX, normalized);
+            if (redisService.getCached(lockKey) == null) {
+                return localRemaining;
+            }
+            Long ttl = redisService.getExpire(lockKey, TimeUnit.MILLISECONDS);
+            return Math.max(localRemaining, ttl != null && ttl > 0 ? ttl : 0);
+        } catch (DataAccessException e) {
+            return localRemaining;
+        }
     }
 
     /**
      * 手动解锁账户（管理员操作）
      */
     public void unlockAccount(String identifier) {
-        String lockKey = ACCOUNT_LOCKED_PREFIX + identifier.toLowerCase();
-        String attemptKey = LOGIN_ATTEMPT_PREFIX + identifier.toLowerCase();
-        redisService.delete(lockKey);
-        redisService.delete(attemptKey);
+        localAttempts.invalidate(identifier.toLowerCase());
+        redisService.delete(attemptKeys(identifier.toLowerCase()));
         log.info("管理员解锁账户: {}", identifier);
     }
-}
 
+    /**
+     * 失败次数键和锁定键（与 LOGIN_FAILED_SCRIPT 的 KEYS 顺序一致）
+     */
+    private List<String> attemptKeys(String normalized) {
+        return List.of(redisKeys.key(LOGIN_ATTEMPT_PREFIX, normalized), redisKeys.key(ACCOUNT_LOCKED_PREFIX, normalized));
+    }
+
+    /**
+     * 登录失败记录结果
+     */
+    @Value
+    public static class AttemptResult {
+
+        /**
+         * 剩余尝试次数，已锁定时为0
+         */
+        int remainingAttempts;
+
+        /**
+         * 锁定剩余时间（毫秒），未锁定时为0
+         */
+        long lockRemainingMillis;
+
+        /**
+         * 账户是否已锁定
+         */
+        public boolean isLocked() {
+            return lockRemainingMillis > 0;
+        }
+    }
+
+    /**
+     * Redis 不可用时的本地失败记录
+     */
+    private static final class LocalAttempt {
+
+        private int attempts;
+        private long lockedUntil;
+
+        synchronized AttemptResult fail() {
+            long lockRemaining = lockRemainingMillis();
+            if (lockRemaining > 0) {
+                return new AttemptResult(0, lockRemaining);
+            }
+            attempts++;
+            if (attempts >= MAX_ATTEMPT) {
+                attempts = 0;
+                lockedUntil = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(LOCK_TIME_MINUTES);
+                return new AttemptResult(0, TimeUnit.MINUTES.toMillis(LOCK_TIME_MINUTES));
+            }
+            return new AttemptResult(MAX_ATTEMPT - attempts, 0);
+        }
+
+        synchronized int remainingAttempts() {
+            return lockRemainingMillis() > 0 ? 0 : MAX_ATTEMPT - attempts;
+        }
+
+        synchronized long lockRemainingMillis() {
+            return Math.max(0, lockedUntil - System.currentTimeMillis());
+        }
+    }
+}
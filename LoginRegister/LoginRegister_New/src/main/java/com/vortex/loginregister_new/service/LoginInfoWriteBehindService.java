@@ -0,0 +1,230 @@
+package com.vortex.loginregister_new.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 最后登录信息延迟写入
+ * 登录成功时只把登录时间和IP放入内存缓冲区，同一用户/管理员多次登录合并为最新一次；
+ * 每隔 flush-interval 毫秒或缓冲条目达到 batch-size 时按ID排序、以 JDBC 批量更新写库，登录请求不再等待数据库写入
+ *
+ * 持久性边界：进程异常退出最多丢失最近 flush-interval 毫秒（加一次写库耗时）内的登录信息；
+ * 正常关闭时写入全部缓冲条目，写库失败的条目放回缓冲区（期间的新登录优先）下次重试
+ *
+ * @author Vortex
+ * @since 2024
+ */
+@Slf4j
+@Service
+public class LoginInfoWriteBehindService {
+
+    private static final String USER_SQL =
+            "UPDATE user SET last_login_time = ?, last_login_ip = ?, update_time = ? WHERE id = ? AND deleted = 0";
+    private static final String ADMIN_SQL =
+            "UPDATE admin SET last_login_time = ?, last_login_ip = ?, update_time = ? WHERE id = ? AND deleted = 0";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UserCacheService userCacheService;
+    private final boolean enabled;
+    private final int batchSize;
+
+    /**
+     * 待写入的登录信息：ID -> 最近一次登录
+     */
+    private final ConcurrentMap<Long, LoginInfo> pendingUsers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, LoginInfo> pendingAdmins = new ConcurrentHashMap<>();
+
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ExecutorService flushExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "login-info-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Counter writtenCounter;
+    private final Counter failedCounter;
+
+    public LoginInfoWriteBehindService(JdbcTemplate jdbcTemplate,
+                                       UserCacheService userCacheService,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${login-info.write-behind.enabled:false}") boolean enabled,
+                                       @Value("${login-info.write-behind.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.userCacheService = userCacheService;
+        this.enabled = enabled;
+        this.batchSize = Math.max(1, batchSize);
+        Gauge.builder("login.write-behind.pending", this, service -> service.pendingCount())
+                .description("等待写库的最后登录信息条数")
+                .register(meterRegistry);
+        this.writtenCounter = Counter.builder("login.write-behind.written")
+                .description("已写库的最后登录信息条数")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("login.write-behind.failed")
+                .description("写库失败、放回缓冲区重试的最后登录信息条数")
+                .register(meterRegistry);
+        if (enabled) {
+            log.info("最后登录信息延迟写入已启用，批量大小: {}", this.batchSize);
+        }
+    }
+
+    /**
+     * 是否启用延迟写入（未启用时调用方同步写库）
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 记录用户登录
+     *
+     * @param userId  用户ID
+     * @param loginIp 登录IP
+     */
+    public void recordUserLogin(Long userId, String loginIp) {
+        record(pendingUsers, userId, loginIp);
+    }
+
+    /**
+     * 记录管理员登录
+     *
+     * @param adminId 管理员ID
+     * @param loginIp 登录IP
+     */
+    public void recordAdminLogin(Long adminId, String loginIp) {
+        record(pendingAdmins, adminId, loginIp);
+    }
+
+    /**
+     * 写入全部缓冲条目（定期执行，缓冲条目达到批量大小时提前执行）
+     */
+    @Scheduled(fixedDelayString = "${login-info.write-behind.flush-interval:1000}")
+    public void flush() {
+        if (pendingCount() == 0) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            List<Long> userIds = write(pendingUsers, USER_SQL, "用户");
+            write(pendingAdmins, ADMIN_SQL, "管理员");
+            // 最后登录时间属于用户快照，写库后失效缓存
+            userIds.forEach(userCacheService::invalidate);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * 关闭时写入全部缓冲条目
+     */
+    @PreDestroy
+    public void shutdown() {
+        flushExecutor.shutdown();
+        try {
+            flushExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        if (pendingCount() > 0) {
+            log.warn("关闭时仍有 {} 条最后登录信息未能写库", pendingCount());
+        }
+    }
+
+    private void record(ConcurrentMap<Long, LoginInfo> pending, Long id, String loginIp) {
+        pending.put(id, new LoginInfo(LocalDateTime.now(), loginIp));
+        if (pendingCount() >= batchSize && flushRequested.compareAndSet(false, true)) {
+            try {
+                flushExecutor.execute(() -> {
+                    flushRequested.set(false);
+                    flush();
+                });
+            } catch (RejectedExecutionException e) {
+                // 正在关闭，由关闭时的写入处理
+                flushRequested.set(false);
+            }
+        }
+    }
+
+    /**
+     * 取出缓冲条目按ID顺序分批写库（固定加锁顺序，避免并发事务间死锁）
+     *
+     * @return 写库成功的ID
+     */
+    private List<Long> write(ConcurrentMap<Long, LoginInfo> pending, String sql, String type) {
+        if (pending.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, LoginInfo> drained = new TreeMap<>();
+        for (Long id : pending.keySet()) {
+            LoginInfo info = pending.remove(id);
+            if (info != null) {
+                drained.put(id, info);
+            }
+        }
+        List<Long> written = new ArrayList<>(drained.size());
+        List<Long> ids = new ArrayList<>(batchSize);
+        List<Object[]> args = new ArrayList<>(batchSize);
+        for (Map.Entry<Long, LoginInfo> entry : drained.entrySet()) {
+            LoginInfo info = entry.getValue();
+            ids.add(entry.getKey());
+            args.add(new Object[]{info.loginTime(), info.loginIp(), info.loginTime(), entry.getKey()});
+            if (args.size() >= batchSize) {
+                writeBatch(pending, drained, sql, type, ids, args, written);
+            }
+        }
+        if (!args.isEmpty()) {
+            writeBatch(pending, drained, sql, type, ids, args, written);
+        }
+        return written;
+    }
+
+    private void writeBatch(ConcurrentMap<Long, LoginInfo> pending, Map<Long, LoginInfo> drained, String sql,
+                            String type, List<Long> ids, List<Object[]> args, List<Long> written) {
+        try {
+            jdbcTemplate.batchUpdate(sql, args);
+            written.addAll(ids);
+            writtenCounter.increment(ids.size());
+        } catch (DataAccessException e) {
+            // 放回缓冲区，期间产生的新登录信息优先
+            ids.forEach(id -> pending.putIfAbsent(id, drained.get(id)));
+            failedCounter.increment(ids.size());
+            log.warn("{}最后登录信息写库失败，{} 条将在下次重试: {}", type, ids.size(), e.getMessage());
+        } finally {
+            ids.clear();
+            args.clear();
+        }
+    }
+
+    private int pendingCount() {
+        return pendingUsers.size() + pendingAdmins.size();
+    }
+
+    /**
+     * 一次登录的时间和IP
+     */
+    private record LoginInfo(LocalDateTime loginTime, String loginIp) {
+    }
+}
@@ -1,15 +1,30 @@
 package com.vortex.loginregister_new.service;
 
+import com.vortex.loginregister_new.util.LocalRateLimiter;
 import lombok.RequiredArgsConstructor;
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
 
-import java.util.concurrent.TimeUnit;
+import java.util.List;
 
 /**
  * 请求频率限制服务
  * 用于防止暴力破解和DoS攻击
  *
+ * 采用滑动窗口计数算法：按窗口长度分桶，只保存当前桶和上一个桶的计数，
+ * 以上一个桶计数按剩余时间比例加权估算滑动窗口内的请求数，避免固定窗口边界处的双倍突发。
+ * 判断与计数在一个 Lua 脚本中完成，一次往返且并发安全
+ *
+ * 另提供 GCRA（通用信元速率算法）限流：每个键只保存一个理论到达时间（TAT），
+ * 按固定速率平滑放行并允许指定的突发量，内存占用低于计数方式
+ *
+ * 两种算法前都有节点本地限流层（{@link LocalRateLimiter}）：已被拒绝的键在等待期内本地直接拒绝，不访问 Redis；
+ * Redis 不可用（包括熔断器打开）时降级为本节点固定窗口计数，限流不会失效，接口也不会因此报错
+ *
  * @author Vortex
  * @since 2024
  */
@@ -19,12 +34,78 @@ import java.util.concurrent.TimeUnit;
 public class RateLimitService {
 
     private final RedisService redisService;
+    private final LocalRateLimiter localRateLimiter;
+
+    // Redis Key 前缀（哈希结构：w=当前桶序号, c=当前桶计数, p=上一个桶计数）
+    // 与旧版字符串计数键区分，避免升级时类型冲突
+    private static final String RATE_LIMIT_PREFIX = "rate_limit:sw:";
+    private static final String GCRA_PREFIX = "rate_limit:gcra:";
+
+    /**
+     * 滑动窗口限流脚本：ARGV[1]=窗口长度（毫秒）, ARGV[2]=最大请求次数, ARGV[3]=本次消耗（0表示只查询）
+     * 返回 {是否允许(1/0), 剩余次数, 需等待毫秒数}
+     */
+    private static final RedisScript<List> SLIDING_WINDOW_SCRIPT = new DefaultRedisScript<>(
+            "local t = redis.call('TIME') " +
+            "local now = tonumber(t[1]) * 1000 + math.floor(tonumber(t[2]) / 1000) " +
+            "local window = tonumber(ARGV[1]) " +
+            "local limit = tonumber(ARGV[2]) " +
+            "local cost = tonumber(ARGV[3]) " +
+            "local bucket = math.floor(now / window) " +
+            "local data = redis.call('HMGET', KEYS[1], 'w', 'c', 'p') " +
+            "local w = tonumber(data[1]) " +
+            "local c = tonumber(data[2]) or 0 " +
+            "local p = tonumber(data[3]) or 0 " +
+            "if w ~= bucket then " +
+            "  if w == bucket - 1 then p = c else p = 0 end " +
+            "  c = 0 " +
+            "end " +
+            "local elapsed = now - bucket * window " +
+            "local estimated = p * (window - elapsed) / window + c " +
+            "if cost > 0 and estimated + cost <= limit then " +
+            "  c = c + cost " +
+            "  estimated = estimated + cost " +
+            "  redis.call('HSET', KEYS[1], 'w', bucket, 'c', c, 'p', p) " +
+            "  redis.call('PEXPIRE', KEYS[1], window * 2) " +
+            "  return {1, math.floor(limit - estimated), 0} " +
+            "end " +
+            "local remaining = math.max(0, math.floor(limit - estimated)) " +
+            "if cost == 0 then return {1, remaining, 0} end " +
+            // 被拒绝：计算加权估算值降到可容纳本次请求所需的时间
+            "local retry " +
+            "if c + cost <= limit then " +
+            "  retry = window - (limit - c - cost) * window / p - elapsed " +
+            "else " +
+            "  retry = window - elapsed " +
+            "  if c > 0 then retry = retry + math.max(0, window - (limit - cost) * window / c) end " +
+            "end " +
+            "return {0, remaining, math.ceil(retry)}",
+            List.class);
 
-    // Redis Key 前缀
-    private static final String RATE_LIMIT_PREFIX = "rate_limit:";
+    /**
+     * GCRA 限流脚本：ARGV[1]=发放间隔（毫秒）, ARGV[2]=突发容量, ARGV[3]=本次消耗
+     * 键值为理论到达时间（毫秒时间戳），随到达时间过期
+     * 返回 {是否允许(1/0), 剩余可突发次数, 需等待毫秒数}
+     */
+    private static final RedisScript<List> GCRA_SCRIPT = new DefaultRedisScript<>(
+            "local t = redis.call('TIME') " +
+            "local now = tonumber(t[1]) * 1000 + math.floor(tonumber(t[2]) / 1000) " +
+            "local interval = tonumber(ARGV[1]) " +
+            "local tolerance = interval * tonumber(ARGV[2]) " +
+            "local cost = tonumber(ARGV[3]) " +
+            "local tat = tonumber(redis.call('GET', KEYS[1])) or now " +
+            "if tat < now then tat = now end " +
+            "local newTat = tat + interval * cost " +
+            "local diff = now - (newTat - tolerance) " +
+            "if diff < 0 then " +
+            "  return {0, math.max(0, math.floor((now - (tat - tolerance)) / interval)), math.ceil(-diff)} " +
+            "end " +
+            "redis.call('SET', KEYS[1], newTat, 'PX', math.ceil(newTat - now)) " +
+            "return {1, math.floor(diff / interval), 0}",
+            List.class);
 
     /**
-     * 检查是否超过频率限制
+     * 检查是否超过频率限制（并计入本次请求）
      *
      * @param key          限制键（如IP地址或用户标识）
      * @param maxRequests  最大请求次数
@@ -32,44 +113,137 @@ public class RateLimitService {
      * @return true表示超过限制，false表示未超过
      */
     public boolean isRateLimited(String key, int maxRequests, int timeWindow) {
-        String redisKey = RATE_LIMIT_PREFIX + key;
-        String countStr = redisService.get(redisKey);
-        int count = countStr == null ? 0 : Integer.parseInt(countStr);
+        return !tryAcquire(key, maxRequests, timeWindow).isAllowed();
+    }
 
-        if (count >= maxRequests) {
-            log.warn("频率限制触发: key={}, count={}, max={}", key, count, maxRequests);
-            return true;
+    /**
+     * 尝试计入一次请求
+     *
+     * @param key          限制键（如IP地址或用户标识）
+     * @param maxRequests  最大请求次数
+     * @param timeWindow   时间窗口（秒）
+     * @return 限流判定结果，包含剩余次数和需等待时间
+     */
+    public Decision tryAcquire(String key, int maxRequests, int timeWindow) {
+        String localKey = RATE_LIMIT_PREFIX + key;
+        long blockedMillis = localRateLimiter.getBlockedMillis(localKey);
+        if (blockedMillis > 0) {
+            return new Decision(false, 0, blockedMillis);
         }
-
-        // 增加计数
-        count++;
-        if (count == 1) {
-            // 第一次请求，设置过期时间
-            redisService.set(redisKey, String.valueOf(count), timeWindow, TimeUnit.SECONDS);
-        } else {
-            // 更新计数（保持原有过期时间）
-            redisService.set(redisKey, String.valueOf(count), timeWindow, TimeUnit.SECONDS);
+        int localUsed = localRateLimiter.tryAcquireLocal(localKey, maxRequests, timeWindow * 1000L);
+        if (localUsed > 0) {
+            return new Decision(true, localRateLimiter.estimateRemaining(maxRequests, localUsed), 0);
+        }
+        Decision decision;
+        try {
+            decision = evaluate(key, maxRequests, timeWindow, 1);
+        } catch (DataAccessException e) {
+            return acquireFallback(localKey, maxRequests, timeWindow * 1000L);
         }
+        if (!decision.isAllowed()) {
+            localRateLimiter.block(localKey, decision.getRetryAfterMillis());
+            log.warn("频率限制触发: key={}, max={}, window={}s, retryAfter={}ms",
+                    key, maxRequests, timeWindow, decision.getRetryAfterMillis());
+        }
+        return decision;
+    }
 
-        return false;
+    /**
+     * 按 GCRA 算法尝试计入一次请求
+     * 平均速率为 rate 次 / period 秒，空闲后最多允许连续 burst 次
+     *
+     * @param key    限制键（如IP地址或用户标识）
+     * @param rate   周期内允许的请求次数
+     * @param period 周期（秒）
+     * @param burst  突发容量（至少为1）
+     * @return 限流判定结果，包含剩余可突发次数和需等待时间
+     */
+    public Decision tryAcquireGcra(String key, int rate, int period, int burst) {
+        String redisKey = GCRA_PREFIX + key;
+        long blockedMillis = localRateLimiter.getBlockedMillis(redisKey);
+        if (blockedMillis > 0) {
+            return new Decision(false, 0, blockedMillis);
+        }
+        double interval = period * 1000.0 / rate;
+        Decision decision;
+        try {
+            decision = toDecision(redisService.execute(GCRA_SCRIPT, List.of(redisKey),
+                    String.valueOf(interval), String.valueOf(Math.max(1, burst)), "1"));
+        } catch (DataAccessException e) {
+            return acquireFallback(redisKey, rate, period * 1000L);
+        }
+        if (!decision.isAllowed()) {
+            localRateLimiter.block(redisKey, decision.getRetryAfterMillis());
+            log.warn("频率限制触发: key={}, rate={}/{}s, burst={}, retryAfter={}ms",
+                    key, rate, period, burst, decision.getRetryAfterMillis());
+        }
+        return decision;
     }
 
     /**
-     * 获取剩余请求次数
+     * 获取剩余请求次数（不计入请求）
+     *
+     * @param key          限制键
+     * @param maxRequests  最大请求次数
+     * @param timeWindow   时间窗口（秒）
      */
-    public int getRemainingRequests(String key, int maxRequests) {
-        String redisKey = RATE_LIMIT_PREFIX + key;
-        String countStr = redisService.get(redisKey);
-        int count = countStr == null ? 0 : Integer.parseInt(countStr);
-        return Math.max(0, maxRequests - count);
+    public int getRemainingRequests(String key, int maxRequests, int timeWindow) {
+        return evaluate(key, maxRequests, timeWindow, 0).getRemaining();
     }
 
     /**
      * 清除频率限制记录
      */
     public void clearRateLimit(String key) {
-        String redisKey = RATE_LIMIT_PREFIX + key;
-        redisService.delete(redisKey);
+        redisService.delete(List.of(RATE_LIMIT_PREFIX + key, GCRA_PREFIX + key));
+        localRateLimiter.invalidate(RATE_LIMIT_PREFIX + key);
+        localRateLimiter.invalidate(GCRA_PREFIX + key);
     }
-}
 
+    private Decision evaluate(String key, int maxRequests, int timeWindow, int cost) {
+        List<?> result = redisService.execute(SLIDING_WINDOW_SCRIPT, List.of(RATE_LIMIT_PREFIX + key),
+                String.valueOf(timeWindow * 1000L), String.valueOf(maxRequests), String.valueOf(cost));
+        return toDecision(result);
+    }
+
+    /**
+     * Redis 不可用时按本节点固定窗口限流
+     */
+    private Decision acquireFallback(String localKey, int limit, long windowMillis) {
+        int used = localRateLimiter.acquireFallback(localKey, limit, windowMillis);
+        if (used > 0) {
+            return new Decision(true, limit - used, 0);
+        }
+        return new Decision(false, 0, windowMillis - System.currentTimeMillis() % windowMillis);
+    }
+
+    private static Decision toDecision(List<?> result) {
+        return new Decision(toLong(result.get(0)) == 1L, (int) toLong(result.get(1)), toLong(result.get(2)));
+    }
+
+    private static long toLong(Object value) {
+        return value instanceof Number number ? number.longValue() : Long.parseLong(value.toString());
+    }
+
+    /**
+     * 限流判定结果
+     */
+    @Value
+    public static class Decision {
+
+        /**
+         * 是否允许本次请求
+         */
+        boolean allowed;
+
+        /**
+         * 剩余可用次数（滑动窗口为窗口内剩余次数，GCRA 为剩余可突发次数）
+         */
+        int remaining;
+
+        /**
+         * 被拒绝时需等待的毫秒数，允许时为0
+         */
+        long retryAfterMillis;
+    }
+}
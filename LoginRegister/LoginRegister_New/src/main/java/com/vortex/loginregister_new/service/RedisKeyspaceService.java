@@ -0,0 +1,213 @@
+package com.vortex.loginregister_new.service;
+
+import com.vortex.loginregister_new.util.RedisCommandStats;
+import com.vortex.loginregister_new.util.RedisKeys;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redis 键空间报告服务
+ * 用 SCAN 增量抽样键空间，每批键通过一个 Lua 脚本读取 MEMORY USAGE 和 PTTL，
+ * 按键前缀汇总键数、内存和 TTL 分布，并按 DBSIZE 外推全量；
+ * 同时附上 {@link RedisCommandStats} 统计的各前缀命令数，用于容量规划和定位热点前缀
+ *
+ * @author Vortex
+ * @since 2024
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RedisKeyspaceService {
+
+    private final RedisService redisService;
+    private final RedisCommandStats commandStats;
+    private final RedisKeys redisKeys;
+
+    // 每批抽样的键数（一次脚本调用），控制单次脚本占用 Redis 的时间
+    private static final int BATCH_SIZE = 100;
+    // MEMORY USAGE 对哈希等聚合类型的采样元素数
+    private static final String MEMORY_SAMPLES = "5";
+
+    /**
+     * TTL 分布的区间上限（毫秒）与名称，超过最后一个上限归入 ">1d"
+     */
+    private static final long[] TTL_BOUNDS = {
+            TimeUnit.MINUTES.toMillis(1), TimeUnit.HOURS.toMillis(1), TimeUnit.DAYS.toMillis(1)};
+    private static final String[] TTL_LABELS = {"<1m", "1m-1h", "1h-1d", ">1d"};
+    private static final String NO_TTL = "none";
+
+    /**
+     * 读取一批键的内存占用和剩余时间：ARGV[1]=采样元素数, ARGV[2..]=键
+     * 返回 {字节数1, PTTL1, 字节数2, PTTL2, ...}，扫描与读取之间被删除的键字节数为0、PTTL为-2
+     * 键通过 ARGV 传入，抽样本身不计入各前缀的命令统计（集群模式下同时作为 KEYS[1] 用于路由）
+     */
+    private static final RedisScript<List> MEMORY_SCRIPT = new DefaultRedisScript<>(
+            "local result = {} " +
+            "for i = 2, #ARGV do " +
+            "  result[#result + 1] = redis.call('MEMORY', 'USAGE', ARGV[i], 'SAMPLES', ARGV[1]) or 0 " +
+            "  result[#result + 1] = redis.call('PTTL', ARGV[i]) " +
+            "end " +
+            "return result",
+            List.class);
+
+    /**
+     * 抽样生成键空间报告
+     *
+     * @param sampleSize 最多抽样的键数
+     */
+    public KeyspaceReport report(long sampleSize) {
+        long start = System.currentTimeMillis();
+        Map<String, PrefixUsage> usage = new HashMap<>();
+        long[] sampled = {0};
+        redisService.scan("*", BATCH_SIZE, sampleSize, batch -> {
+            List<?> result = readUsage(batch);
+            for (int i = 0; i < batch.size(); i++) {
+                long pttl = toLong(result.get(i * 2 + 1));
+                if (pttl == -2) {
+                    continue;
+                }
+                usage.computeIfAbsent(commandStats.prefixOf(batch.get(i)), PrefixUsage::new)
+                        .add(toLong(result.get(i * 2)), pttl);
+                sampled[0]++;
+            }
+        });
+        long totalKeys = redisService.dbSize();
+        double scale = sampled[0] > 0 ? Math.max(1.0, (double) totalKeys / sampled[0]) : 1.0;
+
+        // 有命令但未抽样到键的前缀同样列出
+        Map<String, Map<String, Long>> commands = commandStats.getCounts();
+        Map<String, Double> rates = commandStats.getRates();
+        commands.keySet().forEach(prefix -> usage.computeIfAbsent(prefix, PrefixUsage::new));
+        List<PrefixUsage> prefixes = new ArrayList<>(usage.values());
+        for (PrefixUsage prefix : prefixes) {
+            prefix.setEstimatedKeys(Math.round(prefix.getSampledKeys() * scale));
+            prefix.setEstimatedBytes(Math.round(prefix.getSampledBytes() * scale));
+            prefix.setAvgBytes(prefix.getSampledKeys() > 0 ? prefix.getSampledBytes() / prefix.getSampledKeys() : 0);
+            prefix.setCommands(commands.getOrDefault(prefix.getPrefix(), Map.of()));
+            prefix.setCommandsPerSecond(rates.getOrDefault(prefix.getPrefix(), 0.0));
+        }
+        prefixes.sort(Comparator.comparingLong(PrefixUsage::getEstimatedBytes).reversed()
+                .thenComparing(Comparator.comparingDouble(PrefixUsage::getCommandsPerSecond).reversed()));
+
+        KeyspaceReport report = new KeyspaceReport();
+        report.setTotalKeys(totalKeys);
+        report.setSampledKeys(sampled[0]);
+        report.setElapsedMillis(System.currentTimeMillis() - start);
+        report.setPrefixes(prefixes);
+        log.info("Redis键空间抽样完成：抽样 {}/{} 个键，耗时 {}ms", sampled[0], totalKeys, report.getElapsedMillis());
+        return report;
+    }
+
+    /**
+     * 读取一批键的内存占用和剩余时间
+     * 集群模式下同一批键分布在不同槽位，脚本必须在键所在节点执行，改为逐个键调用
+     */
+    private List<?> readUsage(List<String> batch) {
+        if (redisKeys.isClusterMode()) {
+            List<Object> result = new ArrayList<>(batch.size() * 2);
+            for (String key : batch) {
+                List<?> usage = redisService.execute(MEMORY_SCRIPT, List.of(key), MEMORY_SAMPLES, key);
+                result.addAll(usage);
+            }
+            return result;
+        }
+        List<String> args = new ArrayList<>(batch.size() + 1);
+        args.add(MEMORY_SAMPLES);
+        args.addAll(batch);
+        return redisService.execute(MEMORY_SCRIPT, List.of(), args.toArray(String[]::new));
+    }
+
+    private static long toLong(Object value) {
+        return value instanceof Number number ? number.longValue() : Long.parseLong(value.toString());
+    }
+
+    /**
+     * 键空间报告
+     */
+    @Data
+    public static class KeyspaceReport {
+
+        /**
+         * 数据库键总数（DBSIZE）
+         */
+        private long totalKeys;
+
+        /**
+         * 实际抽样的键数
+         */
+        private long sampledKeys;
+
+        /**
+         * 抽样耗时（毫秒）
+         */
+        private long elapsedMillis;
+
+        /**
+         * 各前缀统计，按估算内存降序
+         */
+        private List<PrefixUsage> prefixes;
+    }
+
+    /**
+     * 单个键前缀的统计
+     */
+    @Data
+    public static class PrefixUsage {
+
+        private final String prefix;
+
+        /**
+         * 抽样到的键数及其内存（字节）
+         */
+        private long sampledKeys;
+        private long sampledBytes;
+        private long avgBytes;
+
+        /**
+         * 按抽样比例外推的全量键数和内存（字节）
+         */
+        private long estimatedKeys;
+        private long estimatedBytes;
+
+        /**
+         * 抽样键的 TTL 分布：none（永不过期）、&lt;1m、1m-1h、1h-1d、&gt;1d
+         */
+        private final Map<String, Long> ttlDistribution = new LinkedHashMap<>();
+
+        /**
+         * 本节点启动以来按命令名的累计次数，及最近一个统计周期的每秒命令数
+         */
+        private Map<String, Long> commands;
+        private double commandsPerSecond;
+
+        void add(long bytes, long pttl) {
+            sampledKeys++;
+            sampledBytes += bytes;
+            ttlDistribution.merge(ttlLabel(pttl), 1L, Long::sum);
+        }
+
+        private static String ttlLabel(long pttl) {
+            if (pttl < 0) {
+                return NO_TTL;
+            }
+            for (int i = 0; i < TTL_BOUNDS.length; i++) {
+                if (pttl < TTL_BOUNDS[i]) {
+                    return TTL_LABELS[i];
+                }
+            }
+            return TTL_LABELS[TTL_LABELS.length - 1];
+        }
+    }
+}
@@ -1,6 +1,14 @@
 package com.vortex.loginregister_new.service;
 
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * Redis 服务接口
@@ -28,6 +36,14 @@ public interface RedisService {
      */
     void set(String key, String value, long timeout, TimeUnit unit);
 
+    /**
+     * 自增（键不存在时从0开始）
+     *
+     * @param key 键
+     * @return 自增后的值
+     */
+    Long increment(String key);
+
     /**
      * 获取值
      *
@@ -36,6 +52,33 @@ public interface RedisService {
      */
     String get(String key);
 
+    /**
+     * 批量获取值（MGET，一次往返）
+     *
+     * @param keys 键
+     * @return 值列表，与键顺序一致，不存在的键对应null
+     */
+    List<String> multiGet(Collection<String> keys);
+
+    /**
+     * 通过近端缓存读取（redis.near-cache.enabled 开启时）
+     * 适用于读多写少的键：命中时不访问 Redis，键被修改后由 Redis 推送失效；
+     * 未开启或跟踪连接不可用时等同于 {@link #get(String)}
+     *
+     * @param key 键
+     * @return 值
+     */
+    String getCached(String key);
+
+    /**
+     * 通过近端缓存批量读取，未命中的键合并为一次 MGET
+     * 未开启或跟踪连接不可用时等同于 {@link #multiGet(Collection)}
+     *
+     * @param keys 键
+     * @return 值列表，与键顺序一致，不存在的键对应null
+     */
+    List<String> multiGetCached(List<String> keys);
+
     /**
      * 删除键
      *
@@ -44,6 +87,14 @@ public interface RedisService {
      */
     Boolean delete(String key);
 
+    /**
+     * 批量删除键（一条 DEL 命令，一次往返）
+     *
+     * @param keys 键
+     * @return 实际删除的键数量
+     */
+    Long delete(Collection<String> keys);
+
     /**
      * 判断键是否存在
      *
@@ -70,5 +121,93 @@ public interface RedisService {
      * @return 过期时间（秒）
      */
     Long getExpire(String key, TimeUnit unit);
+
+    /**
+     * 使用 SCAN 增量遍历匹配的键（不阻塞 Redis）
+     *
+     * @param pattern 匹配模式，如 prefix:*
+     * @return 匹配的键
+     */
+    Set<String> scan(String pattern);
+
+    /**
+     * 使用 SCAN 增量遍历匹配的键，按批交给回调处理（不阻塞 Redis，也不把全部键读入内存）
+     *
+     * @param pattern       匹配模式，如 prefix:*
+     * @param batchSize     每批键数（同时作为 SCAN 的 COUNT 提示）
+     * @param limit         最多遍历的键数
+     * @param batchConsumer 每批键的处理回调
+     */
+    void scan(String pattern, int batchSize, long limit, Consumer<List<String>> batchConsumer);
+
+    /**
+     * 当前数据库的键总数（DBSIZE）
+     *
+     * @return 键总数
+     */
+    Long dbSize();
+
+    /**
+     * 执行Lua脚本（服务端原子执行，一次往返）
+     *
+     * @param script 脚本
+     * @param keys   KEYS
+     * @param args   ARGV
+     * @return 脚本返回值
+     */
+    <T> T execute(RedisScript<T> script, List<String> keys, String... args);
+
+    /**
+     * 以管道方式执行一组命令（命令一次性发送，一次往返）
+     * 回调中的命令立即返回null，结果按调用顺序在返回值中给出
+     *
+     * @param operations 要执行的命令
+     * @return 各命令的结果
+     */
+    List<Object> executePipelined(Consumer<RedisOperations<String, Object>> operations);
+
+    /**
+     * 在 MULTI/EXEC 事务中执行一组命令（原子执行，其他客户端的命令不会插入其中）
+     * 回调中的命令立即返回null，结果按调用顺序在返回值中给出；
+     * 集群模式不支持事务，需要在集群上保持原子性的多键操作应使用同槽位键的 Lua 脚本
+     *
+     * @param operations 要执行的命令
+     * @return 各命令的结果
+     */
+    List<Object> executeInTransaction(Consumer<RedisOperations<String, Object>> operations);
+
+    /**
+     * 设置哈希字段
+     *
+     * @param key   键
+     * @param field 字段
+     * @param value 值
+     */
+    void hashPut(String key, String field, String value);
+
+    /**
+     * 删除哈希字段
+     *
+     * @param key   键
+     * @param field 字段
+     * @return 删除的字段数
+     */
+    Long hashDelete(String key, String field);
+
+    /**
+     * 获取哈希的全部字段
+     *
+     * @param key 键
+     * @return 字段 -> 值，键不存在时为空
+     */
+    Map<String, String> hashEntries(String key);
+
+    /**
+     * 发布消息
+     *
+     * @param channel 频道
+     * @param message 消息
+     */
+    void publish(String channel, String message);
 }
 
@@ -0,0 +1,142 @@
+package com.vortex.loginregister_new.service;
+
+import com.vortex.loginregister_new.common.Constants;
+import com.vortex.loginregister_new.util.JwtClaims;
+import com.vortex.loginregister_new.util.TokenDigestUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 刷新令牌家族服务
+ * 同一次登录产生的刷新令牌属于同一个家族，每次刷新家族代数加一，旧代的刷新令牌随即作废；
+ * 一旦旧代令牌被再次使用（重放），整个家族立即吊销
+ *
+ * 家族状态为一个小哈希 {gen, uid, revoked}，所有变更在一个Lua脚本内原子完成，
+ * 吊销只需修改一个字段，无需扫描键，也无需为每个签发的令牌单独存储
+ *
+ * 不属于任何家族的刷新令牌（升级前或Redis不可用时签发）只能使用一次：刷新时以 SET NX 写入使用标记，
+ * 标记有效期为令牌剩余有效期，重复出示即拒绝
+ *
+ * @author Vortex
+ * @since 2024
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RefreshTokenFamilyService {
+
+    private final RedisService redisService;
+
+    // Redis Key 前缀
+    private static final String FAMILY_PREFIX = Constants.RedisKey.REFRESH_TOKEN_PREFIX + "family:";
+    private static final String USED_PREFIX = Constants.RedisKey.REFRESH_TOKEN_PREFIX + "used:";
+
+    /**
+     * 创建家族：ARGV[1]=用户ID, ARGV[2]=有效期（毫秒）
+     */
+    private static final RedisScript<Long> CREATE_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('HSET', KEYS[1], 'gen', 1, 'uid', ARGV[1], 'revoked', 0) " +
+            "redis.call('PEXPIRE', KEYS[1], ARGV[2]) " +
+            "return 1", Long.class);
+
+    /**
+     * 轮换：ARGV[1]=出示的代数, ARGV[2]=有效期（毫秒）
+     * 返回新代数；-1 家族不存在或已过期，-2 家族已吊销，-3 检测到重放（同时吊销家族）
+     */
+    private static final RedisScript<Long> ROTATE_SCRIPT = new DefaultRedisScript<>(
+            "local state = redis.call('HMGET', KEYS[1], 'gen', 'revoked') " +
+            "if not state[1] then return -1 end " +
+            "if state[2] == '1' then return -2 end " +
+            "if tonumber(state[1]) ~= tonumber(ARGV[1]) then " +
+            "  redis.call('HSET', KEYS[1], 'revoked', 1) " +
+            "  return -3 " +
+            "end " +
+            "local gen = redis.call('HINCRBY', KEYS[1], 'gen', 1) " +
+            "redis.call('PEXPIRE', KEYS[1], ARGV[2]) " +
+            "return gen", Long.class);
+
+    /**
+     * 标记无家族的刷新令牌已使用：ARGV[1]=有效期（毫秒），返回1表示首次使用
+     */
+    private static final RedisScript<Long> CONSUME_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('SET', KEYS[1], 1, 'NX', 'PX', ARGV[1]) then return 1 end " +
+            "return 0", Long.class);
+
+    private static final long FAMILY_NOT_FOUND = -1L;
+    private static final long FAMILY_REVOKED = -2L;
+    private static final long REUSE_DETECTED = -3L;
+
+    /**
+     * 创建新的刷新令牌家族（代数从1开始）
+     *
+     * @param userId     用户ID
+     * @param ttlMillis  家族有效期（毫秒），与刷新令牌有效期一致
+     * @return 家族ID；Redis 不可用时返回null，此时签发短期、只能使用一次的无家族刷新令牌
+     */
+    public String createFamily(Long userId, long ttlMillis) {
+        String familyId = UUID.randomUUID().toString().replace("-", "");
+        try {
+            redisService.execute(CREATE_SCRIPT, List.of(FAMILY_PREFIX + familyId),
+                    String.valueOf(userId), String.valueOf(ttlMillis));
+        } catch (DataAccessException e) {
+            log.warn("Redis不可用，刷新令牌暂不加入家族，用户ID: {}", userId);
+            return null;
+        }
+        return familyId;
+    }
+
+    /**
+     * 轮换刷新令牌
+     *
+     * @param familyId   家族ID
+     * @param generation 出示的刷新令牌代数
+     * @param ttlMillis  续期后的家族有效期（毫秒）
+     * @return 新代数；令牌已作废或检测到重放时返回null
+     */
+    public Long rotate(String familyId, long generation, long ttlMillis) {
+        Long result = redisService.execute(ROTATE_SCRIPT, List.of(FAMILY_PREFIX + familyId),
+                String.valueOf(generation), String.valueOf(ttlMillis));
+        if (result == null || result == FAMILY_NOT_FOUND) {
+            log.warn("刷新令牌家族不存在或已过期: {}", familyId);
+            return null;
+        }
+        if (result == FAMILY_REVOKED) {
+            log.warn("刷新令牌家族已吊销: {}", familyId);
+            return null;
+        }
+        if (result == REUSE_DETECTED) {
+            log.warn("检测到刷新令牌重放，已吊销整个家族: {}, 代数: {}", familyId, generation);
+            return null;
+        }
+        return result;
+    }
+
+    /**
+     * 使用不属于任何家族的刷新令牌（原子操作，同一个令牌只有第一次调用成功）
+     *
+     * @param token  刷新令牌
+     * @param claims 已验证的声明
+     * @return 是否首次使用；令牌已被使用过时返回false
+     */
+    public boolean consumeUnbound(String token, JwtClaims claims) {
+        long ttlMillis = claims.getRemainingMillis();
+        if (ttlMillis <= 0) {
+            return false;
+        }
+        // 以jti（旧token为token摘要）为键，与黑名单一致
+        String tokenId = claims.getTokenId() != null ? claims.getTokenId() : TokenDigestUtils.sha256(token);
+        Long result = redisService.execute(CONSUME_SCRIPT, List.of(USED_PREFIX + tokenId), String.valueOf(ttlMillis));
+        if (result == null || result != 1L) {
+            log.warn("无家族的刷新令牌被重复使用，用户ID: {}", claims.getUserId());
+            return false;
+        }
+        return true;
+    }
+}
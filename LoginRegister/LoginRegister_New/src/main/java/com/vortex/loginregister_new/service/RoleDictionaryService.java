@@ -0,0 +1,153 @@
+package com.vortex.loginregister_new.service;
+
+import com.vortex.loginregister_new.entity.Role;
+import com.vortex.loginregister_new.mapper.RoleMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 角色字典
+ * 启动时把角色表（id -> 角色）加载到内存，用户的角色ID由字典换算为角色编码，登录时无需再关联查询角色表；
+ * 定期重新加载，遇到字典中不存在的角色ID（新增的角色）时立即重新加载（限制频率），
+ * 管理员接口触发的重新加载通过Redis发布/订阅通知各节点
+ *
+ * @author Vortex
+ * @since 2024
+ */
+@Slf4j
+@Service
+public class RoleDictionaryService {
+
+    private static final String RELOAD_CHANNEL = "role:dictionary:reload-events";
+
+    /**
+     * 遇到未知角色ID时两次重新加载的最小间隔
+     */
+    private static final long MISS_RELOAD_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final RoleMapper roleMapper;
+    private final RedisService redisService;
+    private final RedisMessageListenerContainer listenerContainer;
+
+    /**
+     * 角色ID -> 角色，整体替换以保证读取无锁
+     */
+    private volatile Map<Long, Role> roles = Collections.emptyMap();
+    private volatile long lastReloadAt = System.nanoTime() - MISS_RELOAD_INTERVAL_NANOS;
+
+    public RoleDictionaryService(RoleMapper roleMapper,
+                                 RedisService redisService,
+                                 RedisMessageListenerContainer listenerContainer) {
+        this.roleMapper = roleMapper;
+        this.redisService = redisService;
+        this.listenerContainer = listenerContainer;
+    }
+
+    @PostConstruct
+    public void init() {
+        reload();
+        listenerContainer.addMessageListener((message, pattern) -> reload(), new ChannelTopic(RELOAD_CHANNEL));
+    }
+
+    /**
+     * 从数据库重新加载角色字典（本节点）
+     */
+    public synchronized void reload() {
+        Map<Long, Role> loaded = new HashMap<>();
+        for (Role role : roleMapper.selectList(null)) {
+            loaded.put(role.getId(), role);
+        }
+        this.roles = Collections.unmodifiableMap(loaded);
+        this.lastReloadAt = System.nanoTime();
+        log.info("角色字典已加载，角色数: {}", loaded.size());
+    }
+
+    /**
+     * 定期重新加载，兜底直接修改数据库、丢失的发布/订阅消息
+     */
+    @Scheduled(fixedDelayString = "${role.dictionary.refresh-interval:300000}",
+            initialDelayString = "${role.dictionary.refresh-interval:300000}")
+    public void scheduledReload() {
+        try {
+            reload();
+        } catch (Exception e) {
+            log.warn("角色字典定期加载失败，继续使用当前字典: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 重新加载所有节点的角色字典（角色变更后调用）
+     */
+    public void reloadAll() {
+        reload();
+        try {
+            redisService.publish(RELOAD_CHANNEL, "reload");
+        } catch (DataAccessException e) {
+            log.warn("Redis不可用，其他节点的角色字典将在定期加载时更新");
+        }
+    }
+
+    /**
+     * 把角色ID换算为启用状态的角色编码
+     *
+     * @param roleIds 角色ID列表
+     * @return 角色编码列表（忽略已禁用和不存在的角色）
+     */
+    public List<String> toCodes(Collection<Long> roleIds) {
+        if (roleIds == null || roleIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, Role> current = roles;
+        if (!current.keySet().containsAll(roleIds) && reloadOnMiss()) {
+            current = roles;
+        }
+        List<String> codes = new ArrayList<>(roleIds.size());
+        for (Long roleId : roleIds) {
+            Role role = current.get(roleId);
+            // 状态：0-禁用，1-正常
+            if (role != null && role.getStatus() != null && role.getStatus() == 1) {
+                codes.add(role.getRoleCode());
+            }
+        }
+        return codes;
+    }
+
+    /**
+     * 获取当前字典中的所有角色
+     */
+    public Collection<Role> getRoles() {
+        return roles.values();
+    }
+
+    /**
+     * 遇到未知角色ID时重新加载，限制频率避免已删除角色的残留关联反复触发
+     *
+     * @return 是否重新加载了
+     */
+    private synchronized boolean reloadOnMiss() {
+        if (System.nanoTime() - lastReloadAt < MISS_RELOAD_INTERVAL_NANOS) {
+            return false;
+        }
+        log.info("发现未知角色ID，重新加载角色字典");
+        try {
+            reload();
+            return true;
+        } catch (DataAccessException e) {
+            log.warn("角色字典加载失败，继续使用当前字典: {}", e.getMessage());
+            return false;
+        }
+    }
+}
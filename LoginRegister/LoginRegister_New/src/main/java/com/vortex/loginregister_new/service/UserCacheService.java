@@ -0,0 +1,316 @@
+package com.vortex.loginregister_new.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.vortex.loginregister_new.entity.User;
+import com.vortex.loginregister_new.mapper.UserMapper;
+import com.vortex.loginregister_new.util.RedisKeys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * 用户快照两级缓存
+ * 一级为本节点 Caffeine 缓存，二级为 Redis（JSON），按用户ID保存不含密码的用户快照；
+ * 账号、邮箱只缓存到用户ID的索引，命中后取ID对应的快照并核对账号/邮箱，不一致（如修改了邮箱、用户已删除）时回源数据库，
+ * 因此用户变更时只需按ID失效快照
+ *
+ * 同一个键在本节点只有一个线程回源（Caffeine 按键加载），热点用户缓存失效时不会同时打到数据库；
+ * 失效时删除 Redis 快照并通过发布/订阅通知各节点清除本地快照，在事务中失效时提交后再清除一次，
+ * 避免并发读取在提交前把旧数据重新写入缓存；Redis 不可用时跳过二级缓存直接回源
+ *
+ * 需要校验密码的场景使用 {@link UserService} 的 *WithPassword 方法直接查询数据库
+ *
+ * @author Vortex
+ * @since 2024
+ */
+@Slf4j
+@Service
+public class UserCacheService {
+
+    private final UserMapper userMapper;
+    private final RedisService redisService;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final RedisKeys redisKeys;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final long redisTtlSeconds;
+
+    // Redis Key 前缀
+    private static final String SNAPSHOT_PREFIX = "user:cache:id:";
+    private static final String ACCOUNT_PREFIX = "user:cache:account:";
+    private static final String EMAIL_PREFIX = "user:cache:email:";
+    private static final String INVALIDATE_CHANNEL = "user:cache:invalidate-events";
+
+    /**
+     * 本地快照缓存：用户ID -> 快照（不含密码）
+     */
+    private final Cache<Long, User> snapshots;
+
+    /**
+     * 本地索引缓存：账号/邮箱的 Redis 键 -> 用户ID
+     */
+    private final Cache<String, Long> index;
+
+    public UserCacheService(UserMapper userMapper,
+                            RedisService redisService,
+                            RedisMessageListenerContainer listenerContainer,
+                            RedisKeys redisKeys,
+                            ObjectMapper objectMapper,
+                            MeterRegistry meterRegistry,
+                            @Value("${user.cache.enabled:false}") boolean enabled,
+                            @Value("${user.cache.local-max-size:10000}") long localMaxSize,
+                            @Value("${user.cache.local-expire-seconds:60}") long localExpireSeconds,
+                            @Value("${user.cache.redis-ttl-minutes:30}") long redisTtlMinutes) {
+        this.userMapper = userMapper;
+        this.redisService = redisService;
+        this.listenerContainer = listenerContainer;
+        this.redisKeys = redisKeys;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.redisTtlSeconds = TimeUnit.MINUTES.toSeconds(redisTtlMinutes);
+        // 本地过期时间较短，兜底丢失的发布/订阅消息
+        this.snapshots = Caffeine.newBuilder()
+                .maximumSize(localMaxSize)
+                .expireAfterWrite(localExpireSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        this.index = Caffeine.newBuilder()
+                .maximumSize(localMaxSize * 2)
+                .expireAfterWrite(localExpireSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        if (enabled) {
+            CaffeineCacheMetrics.monitor(meterRegistry, snapshots, "user.snapshot");
+            CaffeineCacheMetrics.monitor(meterRegistry, index, "user.index");
+            log.info("用户缓存已启用，本地容量上限: {}，Redis过期时间: {}分钟", localMaxSize, redisTtlMinutes);
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        listenerContainer.addMessageListener(
+                (message, pattern) -> {
+                    String userId = new String(message.getBody(), StandardCharsets.UTF_8);
+                    snapshots.invalidate(Long.valueOf(userId));
+                },
+                new ChannelTopic(INVALIDATE_CHANNEL));
+    }
+
+    /**
+     * 根据ID获取用户快照
+     *
+     * @param id 用户ID
+     * @return 用户快照副本（密码为null），不存在时返回null
+     */
+    public User getById(Long id) {
+        if (!enabled) {
+            return withoutPassword(userMapper.selectById(id));
+        }
+        return copy(snapshots.get(id, this::loadSnapshot));
+    }
+
+    /**
+     * 根据账号获取用户快照
+     *
+     * @param account 账号
+     * @return 用户快照副本（密码为null），不存在时返回null
+     */
+    public User findByAccount(String account) {
+        if (!enabled) {
+            return withoutPassword(userMapper.findByAccount(account));
+        }
+        return findByIndex(redisKeys.key(ACCOUNT_PREFIX, account), account, userMapper::findByAccount,
+                user -> account.equals(user.getAccount()));
+    }
+
+    /**
+     * 根据邮箱获取用户快照
+     *
+     * @param email 邮箱
+     * @return 用户快照副本（密码为null），不存在时返回null
+     */
+    public User findByEmail(String email) {
+        if (!enabled) {
+            return withoutPassword(userMapper.findByEmail(email));
+        }
+        // 数据库按不区分大小写的排序规则比较邮箱，索引键统一小写
+        return findByIndex(redisKeys.key(EMAIL_PREFIX, email.toLowerCase()), email, userMapper::findByEmail,
+                user -> email.equalsIgnoreCase(user.getEmail()));
+    }
+
+    /**
+     * 使用户快照失效（用户信息变更、删除后调用）
+     *
+     * @param userId 用户ID
+     */
+    public void invalidate(Long userId) {
+        if (!enabled || userId == null) {
+            return;
+        }
+        evict(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(userId);
+                }
+            });
+        }
+    }
+
+    /**
+     * 通过账号/邮箱索引获取快照
+     * 索引命中后核对快照，不一致时直接回源并重建索引
+     */
+    private User findByIndex(String indexKey, String value, Function<String, User> loader, Predicate<User> matches) {
+        Long id = index.get(indexKey, key -> loadIndex(key, value, loader));
+        if (id == null) {
+            return null;
+        }
+        User snapshot = snapshots.get(id, this::loadSnapshot);
+        if (snapshot != null && matches.test(snapshot)) {
+            return copy(snapshot);
+        }
+        index.invalidate(indexKey);
+        User user = loader.apply(value);
+        if (user == null) {
+            deleteQuietly(indexKey);
+            return null;
+        }
+        snapshot = withoutPassword(user);
+        snapshots.put(snapshot.getId(), snapshot);
+        index.put(indexKey, snapshot.getId());
+        writeSnapshot(snapshot);
+        return copy(snapshot);
+    }
+
+    /**
+     * 加载索引：先读 Redis，未命中时回源并写入快照和索引
+     */
+    private Long loadIndex(String indexKey, String value, Function<String, User> loader) {
+        try {
+            String id = redisService.get(indexKey);
+            if (id != null) {
+                return Long.valueOf(id);
+            }
+        } catch (DataAccessException e) {
+            log.debug("Redis不可用，跳过用户索引缓存: {}", e.getMessage());
+        }
+        User user = loader.apply(value);
+        if (user == null) {
+            return null;
+        }
+        User snapshot = withoutPassword(user);
+        snapshots.put(snapshot.getId(), snapshot);
+        writeSnapshot(snapshot);
+        return snapshot.getId();
+    }
+
+    /**
+     * 加载快照：先读 Redis，未命中时回源并写入 Redis
+     */
+    private User loadSnapshot(Long id) {
+        String snapshotKey = redisKeys.key(SNAPSHOT_PREFIX, id);
+        try {
+            String json = redisService.get(snapshotKey);
+            if (json != null) {
+                return objectMapper.readValue(json, User.class);
+            }
+        } catch (DataAccessException e) {
+            log.debug("Redis不可用，跳过用户快照缓存: {}", e.getMessage());
+        } catch (JsonProcessingException e) {
+            log.warn("用户快照解析失败，重新加载 - userId: {}", id);
+        }
+        User user = withoutPassword(userMapper.selectById(id));
+        if (user != null) {
+            writeSnapshot(user);
+        }
+        return user;
+    }
+
+    /**
+     * 写入 Redis 快照和账号、邮箱索引，过期时间加随机抖动避免集中过期
+     */
+    private void writeSnapshot(User snapshot) {
+        long ttl = redisTtlSeconds + ThreadLocalRandom.current().nextLong(redisTtlSeconds / 10 + 1);
+        try {
+            String id = String.valueOf(snapshot.getId());
+            redisService.set(redisKeys.key(SNAPSHOT_PREFIX, id), objectMapper.writeValueAsString(snapshot),
+                    ttl, TimeUnit.SECONDS);
+            redisService.set(redisKeys.key(ACCOUNT_PREFIX, snapshot.getAccount()), id, ttl, TimeUnit.SECONDS);
+            if (snapshot.getEmail() != null && !snapshot.getEmail().isEmpty()) {
+                redisService.set(redisKeys.key(EMAIL_PREFIX, snapshot.getEmail().toLowerCase()), id,
+                        ttl, TimeUnit.SECONDS);
+            }
+        } catch (DataAccessException e) {
+            log.debug("Redis不可用，用户快照未写入二级缓存: {}", e.getMessage());
+        } catch (JsonProcessingException e) {
+            log.warn("用户快照序列化失败 - userId: {}", snapshot.getId(), e);
+        }
+    }
+
+    private void evict(Long userId) {
+        snapshots.invalidate(userId);
+        try {
+            redisService.delete(redisKeys.key(SNAPSHOT_PREFIX, userId));
+            redisService.publish(INVALIDATE_CHANNEL, String.valueOf(userId));
+        } catch (DataAccessException e) {
+            log.warn("Redis不可用，用户 {} 的二级缓存快照未能清除，将在过期后失效", userId);
+        }
+    }
+
+    private void deleteQuietly(String key) {
+        try {
+            redisService.delete(key);
+        } catch (DataAccessException e) {
+            log.debug("Redis不可用，用户索引未能清除: {}", e.getMessage());
+        }
+    }
+
+    private static User withoutPassword(User user) {
+        return user != null ? user.setPassword(null) : null;
+    }
+
+    /**
+     * 复制快照，调用方修改返回的对象不影响缓存
+     */
+    private static User copy(User snapshot) {
+        if (snapshot == null) {
+            return null;
+        }
+        return new User()
+                .setId(snapshot.getId())
+                .setAccount(snapshot.getAccount())
+                .setAccountType(snapshot.getAccountType())
+                .setEmail(snapshot.getEmail())
+                .setPhone(snapshot.getPhone())
+                .setNickname(snapshot.getNickname())
+                .setAvatar(snapshot.getAvatar())
+                .setStatus(snapshot.getStatus())
+                .setLastLoginTime(snapshot.getLastLoginTime())
+                .setLastLoginIp(snapshot.getLastLoginIp())
+                .setCreateTime(snapshot.getCreateTime())
+                .setUpdateTime(snapshot.getUpdateTime())
+                .setDeleted(snapshot.getDeleted());
+    }
+}
@@ -1,12 +1,16 @@
 package com.vortex.loginregister_new.service;
 
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.vortex.loginregister_new.common.CursorPage;
 import com.vortex.loginregister_new.entity.User;
 
 import java.util.List;
 
 /**
  * 用户服务接口
+ * findByAccount、findByEmail、getById 经过用户缓存（{@link UserCacheService}），返回不含密码的快照副本；
+ * 需要校验或判断密码时使用 *WithPassword 方法直接查询数据库
  *
  * @author 01Vortex
  * @since 2024
@@ -29,6 +33,39 @@ public interface UserService extends IService<User> {
      */
     User findByEmail(String email);
 
+    /**
+     * 根据账号查询用户（含密码，不经过缓存）
+     *
+     * @param account 账号
+     * @return 用户对象
+     */
+    User findByAccountWithPassword(String account);
+
+    /**
+     * 根据邮箱查询用户（含密码，不经过缓存）
+     *
+     * @param email 邮箱
+     * @return 用户对象
+     */
+    User findByEmailWithPassword(String email);
+
+    /**
+     * 根据登录标识（账号或邮箱）查询用户（含密码，不经过缓存），账号优先；
+     * 角色ID随用户一起加载（roleIds），配合 {@link #getUserRoles(User)} 登录只需一次数据库查询
+     *
+     * @param identifier 登录标识，邮箱需已转为小写
+     * @return 用户对象
+     */
+    User findByLoginIdentifier(String identifier);
+
+    /**
+     * 根据ID查询用户（含密码，不经过缓存）
+     *
+     * @param id 用户ID
+     * @return 用户对象
+     */
+    User getByIdWithPassword(Long id);
+
     /**
      * 根据手机号查询用户
      *
@@ -85,5 +122,23 @@ public interface UserService extends IService<User> {
      * @return 角色编码列表
      */
     List<String> getUserRoles(Long userId);
-}
 
+    /**
+     * 获取用户角色列表，用户已加载角色ID时直接由角色字典换算，不再查询数据库
+     *
+     * @param user 用户对象
+     * @return 角色编码列表
+     */
+    List<String> getUserRoles(User user);
+
+    /**
+     * 游标分页查询用户，按 (create_time, id) 倒序，不执行 COUNT 和 OFFSET，任意深度翻页耗时相同
+     *
+     * @param queryWrapper 筛选条件（不含排序）
+     * @param cursor       上一页返回的游标，为空字符串时查询第一页
+     * @param size         每页条数
+     * @param withTotal    是否返回近似总数
+     * @return 分页结果（记录不含密码）
+     */
+    CursorPage<User> pageByCursor(QueryWrapper<User> queryWrapper, String cursor, int size, boolean withTotal);
+}
@@ -0,0 +1,169 @@
+package com.vortex.loginregister_new.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.vortex.loginregister_new.util.RedisKeys;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用户token纪元服务
+ * 每个用户维护一个单调递增的纪元，签发token时写入token；
+ * 修改密码等操作使纪元加一，纪元小于当前值的token即视为失效，之后新签发的token不受影响
+ *
+ * 纪元在本节点缓存，变更时通过Redis发布/订阅通知各节点失效本地缓存
+ *
+ * @author Vortex
+ * @since 2024
+ */
+@Slf4j
+@Service
+public class UserTokenEpochService {
+
+    private final RedisService redisService;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final RedisKeys redisKeys;
+
+    // Redis Key 前缀
+    private static final String EPOCH_PREFIX = "user:token:epoch:";
+    private static final String EPOCH_CHANNEL = "user:token:epoch-events";
+
+    /**
+     * 升级前使用的失效标记，存在时视为纪元1（使升级前签发的token失效）
+     */
+    private static final String LEGACY_INVALID_PREFIX = "user:token:invalid:";
+
+    /**
+     * 纪元加一：KEYS[1]=纪元键, KEYS[2]=升级前的失效标记键, ARGV[1]=通知频道, ARGV[2]=用户ID
+     * 自增、清除失效标记、通知各节点在一个脚本中完成；两个键以用户ID为哈希标签，集群模式下位于同一槽位
+     * 返回新纪元
+     */
+    private static final RedisScript<Long> INCREMENT_SCRIPT = new DefaultRedisScript<>(
+            "local epoch = redis.call('INCR', KEYS[1]) " +
+            // 升级前的失效标记对应纪元1，新纪元必须大于它（仅首次失效时发生）
+            "if redis.call('DEL', KEYS[2]) == 1 and epoch < 2 then " +
+            "  epoch = redis.call('INCR', KEYS[1]) " +
+            "end " +
+            "redis.call('PUBLISH', ARGV[1], ARGV[2]) " +
+            "return epoch",
+            Long.class);
+
+    /**
+     * 本地纪元缓存：用户ID -> 当前纪元
+     */
+    private final Cache<Long, Long> epochCache;
+
+    public UserTokenEpochService(RedisService redisService,
+                                 RedisMessageListenerContainer listenerContainer,
+                                 RedisKeys redisKeys,
+                                 @Value("${jwt.epoch-cache.max-size:100000}") long maxSize,
+                                 @Value("${jwt.epoch-cache.expire-minutes:10}") long expireMinutes) {
+        this.redisService = redisService;
+        this.listenerContainer = listenerContainer;
+        this.redisKeys = redisKeys;
+        // 过期时间兜底丢失的发布/订阅消息
+        this.epochCache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(expireMinutes, TimeUnit.MINUTES)
+                .build();
+    }
+
+    @PostConstruct
+    public void init() {
+        listenerContainer.addMessageListener(
+                (message, pattern) -> {
+                    String userId = new String(message.getBody(), StandardCharsets.UTF_8);
+                    epochCache.invalidate(Long.valueOf(userId));
+                },
+                new ChannelTopic(EPOCH_CHANNEL));
+    }
+
+    /**
+     * 获取用户当前纪元（优先本地缓存）
+     *
+     * @param userId 用户ID
+     * @return 当前纪元，从未失效过的用户为0；Redis 不可用且本地未缓存时返回0（不缓存）
+     */
+    public long getEpoch(Long userId) {
+        try {
+            return epochCache.get(userId, this::loadEpoch);
+        } catch (DataAccessException e) {
+            // 纪元偏小只会让新token在Redis恢复后被判定失效、需要重新登录，不会放行已失效的token
+            log.warn("Redis不可用，用户 {} 的token纪元按0签发", userId);
+            return 0L;
+        }
+    }
+
+    /**
+     * 纪元加一，使该用户此前签发的所有token失效
+     *
+     * @param userId 用户ID
+     * @return 新纪元
+     */
+    public long incrementEpoch(Long userId) {
+        List<String> keys = epochKeys(userId);
+        Long epoch = redisService.execute(INCREMENT_SCRIPT, keys, EPOCH_CHANNEL, String.valueOf(userId));
+        epochCache.put(userId, epoch);
+        return epoch;
+    }
+
+    /**
+     * 获取本地缓存中的纪元
+     *
+     * @param userId 用户ID
+     * @return 当前纪元，未缓存时返回null
+     */
+    public Long getCachedEpoch(Long userId) {
+        return epochCache.getIfPresent(userId);
+    }
+
+    /**
+     * 计算纪元所需读取的Redis键（纪元键、升级前的失效标记键），供调用方合并到批量读取中
+     *
+     * @param userId 用户ID
+     * @return 键列表，顺序与 {@link #resolveEpoch(Long, String, String)} 的参数一致
+     */
+    public List<String> epochKeys(Long userId) {
+        return List.of(redisKeys.key(EPOCH_PREFIX, userId), redisKeys.key(LEGACY_INVALID_PREFIX, userId));
+    }
+
+    /**
+     * 根据批量读取到的值计算纪元并写入本地缓存
+     *
+     * @param userId      用户ID
+     * @param epochValue  纪元键的值
+     * @param legacyValue 升级前失效标记键的值
+     * @return 当前纪元
+     */
+    public long resolveEpoch(Long userId, String epochValue, String legacyValue) {
+        long epoch = toEpoch(epochValue, legacyValue);
+        epochCache.put(userId, epoch);
+        return epoch;
+    }
+
+    /**
+     * 从Redis加载纪元（一次批量读取）
+     */
+    private Long loadEpoch(Long userId) {
+        List<String> values = redisService.multiGet(epochKeys(userId));
+        return toEpoch(values.get(0), values.get(1));
+    }
+
+    private long toEpoch(String epochValue, String legacyValue) {
+        if (epochValue != null) {
+            return Long.parseLong(epochValue);
+        }
+        return legacyValue != null ? 1L : 0L;
+    }
+}
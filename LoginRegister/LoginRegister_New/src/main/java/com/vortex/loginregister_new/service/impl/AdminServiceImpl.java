@@ -4,9 +4,9 @@ import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.vortex.loginregister_new.entity.Admin;
 import com.vortex.loginregister_new.mapper.AdminMapper;
 import com.vortex.loginregister_new.service.AdminService;
+import com.vortex.loginregister_new.service.LoginInfoWriteBehindService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 /**
  * 管理员服务实现类
@@ -18,14 +18,23 @@ import org.springframework.transaction.annotation.Transactional;
 @Service
 public class AdminServiceImpl extends ServiceImpl<AdminMapper, Admin> implements AdminService {
 
+    private final LoginInfoWriteBehindService loginInfoWriteBehindService;
+
+    public AdminServiceImpl(LoginInfoWriteBehindService loginInfoWriteBehindService) {
+        this.loginInfoWriteBehindService = loginInfoWriteBehindService;
+    }
+
     @Override
     public Admin findByAccount(String account) {
         return baseMapper.findByAccount(account);
     }
 
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public boolean updateLastLoginInfo(Long adminId, String loginIp) {
+        if (loginInfoWriteBehindService.isEnabled()) {
+            loginInfoWriteBehindService.recordAdminLogin(adminId, loginIp);
+            return true;
+        }
         int rows = baseMapper.updateLastLoginInfo(adminId, loginIp);
         return rows > 0;
     }
@@ -2,45 +2,220 @@ package com.vortex.loginregister_new.service.impl;
 
 import com.vortex.loginregister_new.service.JwtBlacklistService;
 import com.vortex.loginregister_new.service.RedisService;
+import com.vortex.loginregister_new.service.UserTokenEpochService;
+import com.vortex.loginregister_new.util.BloomFilter;
+import com.vortex.loginregister_new.util.JwtClaims;
+import com.vortex.loginregister_new.util.JwtTokenCache;
 import com.vortex.loginregister_new.util.JwtUtil;
-import lombok.RequiredArgsConstructor;
+import com.vortex.loginregister_new.util.TokenDigestUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.util.Date;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /**
  * JWT黑名单服务实现
- * 使用Redis存储已注销的token
+ * 使用Redis存储已注销token的jti（旧token使用摘要），键长固定
+ *
+ * 本地维护一份已注销token的布隆过滤器：过滤器判定"一定不存在"时直接放行，
+ * 只有可能命中时才查询Redis。各节点通过Redis发布/订阅实时同步，
+ * 并定期从Redis重建，保证注销在所有节点上的生效延迟不超过重建周期
  *
  * @author Vortex
  * @since 2024
  */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class JwtBlacklistServiceImpl implements JwtBlacklistService {
 
     private final RedisService redisService;
     private final JwtUtil jwtUtil;
+    private final JwtTokenCache jwtTokenCache;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final UserTokenEpochService userTokenEpochService;
     
     private static final String BLACKLIST_PREFIX = "jwt:blacklist:";
+    private static final String BLACKLIST_CHANNEL = "jwt:blacklist-events";
+
+    // 吊销检查耗时指标的来源标签
+    private static final String SOURCE_LOCAL = "local";
+    private static final String SOURCE_REDIS = "redis";
+    private static final String SOURCE_FALLBACK = "fallback";
+    private static final String SOURCE_ERROR = "error";
+
+    /**
+     * jti为32位、摘要为43位，超过此长度的键为升级前写入的完整token
+     */
+    private static final int LEGACY_KEY_MIN_LENGTH = 64;
+
+    /**
+     * 吊销检查耗时：来源 -> 状态 -> Timer，启动时注册，请求中只记录
+     */
+    private final Map<String, Map<RevocationStatus, Timer>> revocationTimers;
+
+    private final long bloomExpectedInsertions;
+    private final double bloomFpp;
+
+    /**
+     * 当前生效的布隆过滤器，重建时整体替换
+     */
+    private volatile BloomFilter bloomFilter;
+
+    /**
+     * 重建过程中的新过滤器，期间收到的注销消息同时写入，避免重建窗口内丢失
+     */
+    private volatile BloomFilter rebuildingFilter;
+
+    /**
+     * 是否已从Redis完成至少一次加载；未就绪时每次都查询Redis
+     */
+    private volatile boolean bloomReady = false;
+
+    public JwtBlacklistServiceImpl(RedisService redisService,
+                                   JwtUtil jwtUtil,
+                                   JwtTokenCache jwtTokenCache,
+                                   RedisMessageListenerContainer listenerContainer,
+                                   UserTokenEpochService userTokenEpochService,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${jwt.blacklist.bloom.expected-insertions:100000}") long bloomExpectedInsertions,
+                                   @Value("${jwt.blacklist.bloom.fpp:0.001}") double bloomFpp) {
+        this.redisService = redisService;
+        this.jwtUtil = jwtUtil;
+        this.jwtTokenCache = jwtTokenCache;
+        this.listenerContainer = listenerContainer;
+        this.userTokenEpochService = userTokenEpochService;
+        this.revocationTimers = registerRevocationTimers(meterRegistry);
+        this.bloomExpectedInsertions = bloomExpectedInsertions;
+        this.bloomFpp = bloomFpp;
+        this.bloomFilter = new BloomFilter(bloomExpectedInsertions, bloomFpp);
+    }
+
+    @PostConstruct
+    public void init() {
+        // 订阅其他节点的注销消息
+        listenerContainer.addMessageListener(
+                (message, pattern) -> onRevoked(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(BLACKLIST_CHANNEL));
+        rebuildBloomFilter();
+    }
+
+    @Override
+    public RevocationStatus checkRevocation(String token, JwtClaims claims) {
+        long start = System.nanoTime();
+        String source = SOURCE_LOCAL;
+        RevocationStatus status;
+        try {
+            String revokedId = revocationId(token, claims);
+            Long userId = claims.getUserId();
+            // 管理员token不参与用户纪元检查
+            boolean checkEpoch = !claims.isAdmin() && userId != null;
+            Long currentEpoch = checkEpoch ? userTokenEpochService.getCachedEpoch(userId) : null;
+
+            // 收集本地无法判定、需要从Redis读取的键，合并为一次MGET
+            List<String> keys = new ArrayList<>(4);
+            if (!bloomReady || bloomFilter.mightContain(revokedId)) {
+                keys.add(BLACKLIST_PREFIX + revokedId);
+                if (claims.getTokenId() == null) {
+                    keys.add(BLACKLIST_PREFIX + token);
+                }
+            }
+            int blacklistKeyCount = keys.size();
+            if (checkEpoch && currentEpoch == null) {
+                keys.addAll(userTokenEpochService.epochKeys(userId));
+            }
+
+            boolean blacklisted = false;
+            if (!keys.isEmpty()) {
+                source = SOURCE_REDIS;
+                try {
+                    List<String> values = redisService.multiGetCached(keys);
+                    for (int i = 0; i < blacklistKeyCount; i++) {
+                        blacklisted |= values.get(i) != null;
+                    }
+                    if (checkEpoch && currentEpoch == null) {
+                        currentEpoch = userTokenEpochService.resolveEpoch(
+                                userId, values.get(blacklistKeyCount), values.get(blacklistKeyCount + 1));
+                    }
+                } catch (DataAccessException e) {
+                    // 从未加载过黑名单快照时无法判定，交由外层按已注销处理
+                    if (!bloomReady) {
+                        throw e;
+                    }
+                    // Redis不可用：以最近一次重建的布隆过滤器为黑名单快照，可能命中即视为已注销；
+                    // 本地没有缓存纪元的用户暂不做纪元检查
+                    source = SOURCE_FALLBACK;
+                    blacklisted = blacklistKeyCount > 0;
+                }
+            }
+
+            if (blacklisted) {
+                status = RevocationStatus.BLACKLISTED;
+            } else if (checkEpoch && currentEpoch != null && claims.getEpoch() < currentEpoch) {
+                status = RevocationStatus.USER_INVALIDATED;
+            } else {
+                status = RevocationStatus.ACTIVE;
+            }
+        } catch (Exception e) {
+            log.error("检查token吊销状态失败: ", e);
+            // 发生错误时，为了安全起见，认为token已注销
+            source = SOURCE_ERROR;
+            status = RevocationStatus.BLACKLISTED;
+        }
+        revocationTimers.get(source).get(status).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return status;
+    }
+
+    private static Map<String, Map<RevocationStatus, Timer>> registerRevocationTimers(MeterRegistry meterRegistry) {
+        Map<String, Map<RevocationStatus, Timer>> timers = new HashMap<>();
+        for (String source : List.of(SOURCE_LOCAL, SOURCE_REDIS, SOURCE_FALLBACK, SOURCE_ERROR)) {
+            Map<RevocationStatus, Timer> bySource = new EnumMap<>(RevocationStatus.class);
+            for (RevocationStatus status : RevocationStatus.values()) {
+                bySource.put(status, Timer.builder("jwt.revocation.check")
+                        .description("token吊销检查耗时")
+                        .tag("source", source)
+                        .tag("status", status.name())
+                        .publishPercentileHistogram()
+                        .register(meterRegistry));
+            }
+            timers.put(source, bySource);
+        }
+        return timers;
+    }
 
     @Override
     public void addToBlacklist(String token) {
         try {
-            // 获取token的过期时间
-            Date expiration = jwtUtil.getExpirationDateFromToken(token);
-            if (expiration != null) {
-                long ttl = expiration.getTime() - System.currentTimeMillis();
+            // 已过期或无效的token无需加入黑名单
+            JwtClaims claims = jwtUtil.parseToken(token);
+            if (claims != null) {
+                long ttl = claims.getRemainingMillis();
                 if (ttl > 0) {
-                    // 将token添加到黑名单，TTL设置为token的剩余有效期
-                    String key = BLACKLIST_PREFIX + token;
-                    redisService.set(key, "1", ttl / 1000, java.util.concurrent.TimeUnit.SECONDS);
+                    // 以jti（旧token为token摘要）为键，TTL设置为token的剩余有效期
+                    String revokedId = revocationId(token, claims);
+                    redisService.set(BLACKLIST_PREFIX + revokedId, "1", ttl / 1000, TimeUnit.SECONDS);
                     log.info("Token已添加到黑名单，TTL: {}秒", ttl / 1000);
+
+                    // 本节点立即生效，并通知其他节点
+                    onRevoked(revokedId);
+                    redisService.publish(BLACKLIST_CHANNEL, revokedId);
                 }
             }
+            jwtTokenCache.invalidate(token);
         } catch (Exception e) {
             log.error("添加token到黑名单失败: ", e);
         }
@@ -48,10 +223,23 @@ public class JwtBlacklistServiceImpl implements JwtBlacklistService {
 
     @Override
     public boolean isBlacklisted(String token) {
+        return isBlacklisted(token, jwtUtil.parseToken(token));
+    }
+
+    @Override
+    public boolean isBlacklisted(String token, JwtClaims claims) {
+        String revokedId = revocationId(token, claims);
+        // 布隆过滤器判定不存在时无需访问Redis
+        if (bloomReady && !bloomFilter.mightContain(revokedId)) {
+            return false;
+        }
         try {
-            String key = BLACKLIST_PREFIX + token;
-            String value = redisService.get(key);
-            return value != null;
+            if (redisService.get(BLACKLIST_PREFIX + revokedId) != null) {
+                return true;
+            }
+            // 兼容升级前以完整token为键写入的条目（最长保留至旧token过期）
+            return (claims == null || claims.getTokenId() == null)
+                    && redisService.get(BLACKLIST_PREFIX + token) != null;
         } catch (Exception e) {
             log.error("检查token黑名单失败: ", e);
             // 发生错误时，为了安全起见，认为token在黑名单中
@@ -59,32 +247,76 @@ public class JwtBlacklistServiceImpl implements JwtBlacklistService {
         }
     }
 
+    /**
+     * 黑名单标识：优先使用jti，未携带jti的旧token使用token的SHA-256摘要
+     */
+    private String revocationId(String token, JwtClaims claims) {
+        if (claims != null && claims.getTokenId() != null) {
+            return claims.getTokenId();
+        }
+        return TokenDigestUtils.sha256(token);
+    }
+
     @Override
     @Scheduled(fixedRate = 3600000) // 每小时执行一次
     public void cleanExpiredEntries() {
         // Redis会自动过期，无需手动清理
     }
-    
-    private static final String USER_TOKEN_INVALID_PREFIX = "user:token:invalid:";
+
+    /**
+     * 定期从Redis重建布隆过滤器
+     * 兜底丢失的发布/订阅消息，同时清除已过期条目占用的位
+     */
+    @Scheduled(fixedDelayString = "${jwt.blacklist.bloom.rebuild-interval:60000}",
+            initialDelayString = "${jwt.blacklist.bloom.rebuild-interval:60000}")
+    public void rebuildBloomFilter() {
+        BloomFilter rebuilt = new BloomFilter(bloomExpectedInsertions, bloomFpp);
+        rebuildingFilter = rebuilt;
+        try {
+            Set<String> keys = redisService.scan(BLACKLIST_PREFIX + "*");
+            for (String key : keys) {
+                String suffix = key.substring(BLACKLIST_PREFIX.length());
+                // 升级前的条目以完整token为键，转换为对应的摘要
+                rebuilt.put(suffix.length() > LEGACY_KEY_MIN_LENGTH ? TokenDigestUtils.sha256(suffix) : suffix);
+            }
+            bloomFilter = rebuilt;
+            bloomReady = true;
+            log.debug("黑名单布隆过滤器已重建，条目数: {}", keys.size());
+        } catch (Exception e) {
+            // 重建失败时保留旧过滤器；从未加载成功则继续逐次查询Redis
+            log.error("重建黑名单布隆过滤器失败: ", e);
+        } finally {
+            rebuildingFilter = null;
+        }
+    }
+
+    /**
+     * 记录已注销的token（本地或来自其他节点的消息）
+     */
+    private void onRevoked(String revokedId) {
+        // 先写重建中的过滤器：若此时重建尚未开始，Redis中的键必然会被随后的SCAN覆盖
+        BloomFilter rebuilding = rebuildingFilter;
+        if (rebuilding != null) {
+            rebuilding.put(revokedId);
+        }
+        bloomFilter.put(revokedId);
+    }
     
     @Override
-    public void invalidateUserTokens(Long userId, int expirationDays) {
+    public void invalidateUserTokens(Long userId) {
         try {
-            // 在Redis中标记用户token失效，有效期设置为指定天数
-            String key = USER_TOKEN_INVALID_PREFIX + userId;
-            redisService.set(key, "1", expirationDays, java.util.concurrent.TimeUnit.DAYS);
-            log.info("用户 {} 的所有token已标记为失效，有效期: {}天", userId, expirationDays);
+            long epoch = userTokenEpochService.incrementEpoch(userId);
+            jwtTokenCache.invalidateUser(userId);
+            log.info("用户 {} 的所有token已标记为失效，当前纪元: {}", userId, epoch);
         } catch (Exception e) {
             log.error("标记用户token失效失败: ", e);
         }
     }
     
     @Override
-    public boolean isUserTokenInvalidated(Long userId) {
+    public boolean isUserTokenInvalidated(Long userId, long tokenEpoch) {
         try {
-            String key = USER_TOKEN_INVALID_PREFIX + userId;
-            String value = redisService.get(key);
-            return value != null;
+            return tokenEpoch < userTokenEpochService.getEpoch(userId);
         } catch (Exception e) {
             log.error("检查用户token失效状态失败: ", e);
             // 发生错误时，为了安全起见，认为token已失效
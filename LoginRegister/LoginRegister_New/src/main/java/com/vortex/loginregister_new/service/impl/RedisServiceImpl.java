@@ -1,14 +1,39 @@
 package com.vortex.loginregister_new.service.impl;
 
 import com.vortex.loginregister_new.service.RedisService;
+import com.vortex.loginregister_new.util.RedisCircuitBreaker;
+import com.vortex.loginregister_new.util.RedisCommandStats;
+import com.vortex.loginregister_new.util.RedisNearCache;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisClusterNode;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * Redis 服务实现
+ * 所有命令经过 {@link RedisCircuitBreaker}，Redis 不可用时快速失败；
+ * getCached / multiGetCached 在近端缓存（{@link RedisNearCache}）可用时优先读取本地副本；
+ * 带键的命令按键前缀计入 {@link RedisCommandStats}（管道和事务回调中的命令不计入）
  *
  * @author 01Vortex
  * @since 2024
@@ -18,41 +43,229 @@ import java.util.concurrent.TimeUnit;
 public class RedisServiceImpl implements RedisService {
 
     private final RedisTemplate<String, Object> redisTemplate;
+    private final RedisCircuitBreaker circuitBreaker;
+    private final RedisNearCache nearCache;
+    private final RedisCommandStats commandStats;
 
     @Override
     public void set(String key, String value) {
-        redisTemplate.opsForValue().set(key, value);
+        commandStats.record("SET", key);
+        circuitBreaker.run(() -> redisTemplate.opsForValue().set(key, value));
     }
 
     @Override
     public void set(String key, String value, long timeout, TimeUnit unit) {
-        redisTemplate.opsForValue().set(key, value, timeout, unit);
+        commandStats.record("SET", key);
+        circuitBreaker.run(() -> redisTemplate.opsForValue().set(key, value, timeout, unit));
+    }
+
+    @Override
+    public Long increment(String key) {
+        commandStats.record("INCR", key);
+        return circuitBreaker.execute(() -> redisTemplate.opsForValue().increment(key));
     }
 
     @Override
     public String get(String key) {
-        Object value = redisTemplate.opsForValue().get(key);
+        commandStats.record("GET", key);
+        Object value = circuitBreaker.execute(() -> redisTemplate.opsForValue().get(key));
         return value != null ? value.toString() : null;
     }
 
+    @Override
+    public List<String> multiGet(Collection<String> keys) {
+        commandStats.record("MGET", keys);
+        List<Object> values = circuitBreaker.execute(() -> redisTemplate.opsForValue().multiGet(keys));
+        List<String> result = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            Object value = values != null ? values.get(i) : null;
+            result.add(value != null ? value.toString() : null);
+        }
+        return result;
+    }
+
+    @Override
+    public String getCached(String key) {
+        if (!nearCache.isActive()) {
+            return get(key);
+        }
+        return circuitBreaker.execute(() -> nearCache.get(key));
+    }
+
+    @Override
+    public List<String> multiGetCached(List<String> keys) {
+        if (!nearCache.isActive()) {
+            return multiGet(keys);
+        }
+        return circuitBreaker.execute(() -> nearCache.multiGet(keys));
+    }
+
     @Override
     public Boolean delete(String key) {
-        return redisTemplate.delete(key);
+        commandStats.record("DEL", key);
+        return circuitBreaker.execute(() -> redisTemplate.delete(key));
+    }
+
+    @Override
+    public Long delete(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return 0L;
+        }
+        commandStats.record("DEL", keys);
+        return circuitBreaker.execute(() -> redisTemplate.delete(keys));
     }
 
     @Override
     public Boolean hasKey(String key) {
-        return redisTemplate.hasKey(key);
+        commandStats.record("EXISTS", key);
+        return circuitBreaker.execute(() -> redisTemplate.hasKey(key));
     }
 
     @Override
     public Boolean expire(String key, long timeout, TimeUnit unit) {
-        return redisTemplate.expire(key, timeout, unit);
+        commandStats.record("PEXPIRE", key);
+        return circuitBreaker.execute(() -> redisTemplate.expire(key, timeout, unit));
     }
 
     @Override
     public Long getExpire(String key, TimeUnit unit) {
-        return redisTemplate.getExpire(key, unit);
+        commandStats.record("PTTL", key);
+        return circuitBreaker.execute(() -> redisTemplate.getExpire(key, unit));
+    }
+
+    @Override
+    public Set<String> scan(String pattern) {
+        ScanOptions options = ScanOptions.scanOptions().match(pattern).count(1000).build();
+        return circuitBreaker.execute(() -> {
+            Set<String> keys = new HashSet<>();
+            scanKeys(options, key -> {
+                keys.add(key);
+                return true;
+            });
+            return keys;
+        });
+    }
+
+    @Override
+    public void scan(String pattern, int batchSize, long limit, Consumer<List<String>> batchConsumer) {
+        ScanOptions options = ScanOptions.scanOptions().match(pattern).count(batchSize).build();
+        circuitBreaker.run(() -> {
+            List<String> batch = new ArrayList<>(batchSize);
+            long[] scanned = {0};
+            scanKeys(options, key -> {
+                batch.add(key);
+                if (batch.size() >= batchSize) {
+                    batchConsumer.accept(List.copyOf(batch));
+                    batch.clear();
+                }
+                return ++scanned[0] < limit;
+            });
+            if (!batch.isEmpty()) {
+                batchConsumer.accept(List.copyOf(batch));
+            }
+        });
+    }
+
+    @Override
+    public Long dbSize() {
+        return circuitBreaker.execute(() ->
+                redisTemplate.execute((RedisCallback<Long>) connection -> connection.serverCommands().dbSize()));
+    }
+
+    @Override
+    public <T> T execute(RedisScript<T> script, List<String> keys, String... args) {
+        commandStats.record("EVALSHA", keys);
+        return circuitBreaker.execute(() -> redisTemplate.execute(script, keys, (Object[]) args));
+    }
+
+    @Override
+    public void hashPut(String key, String field, String value) {
+        commandStats.record("HSET", key);
+        circuitBreaker.run(() -> redisTemplate.opsForHash().put(key, field, value));
+    }
+
+    @Override
+    public Long hashDelete(String key, String field) {
+        commandStats.record("HDEL", key);
+        return circuitBreaker.execute(() -> redisTemplate.opsForHash().delete(key, field));
+    }
+
+    @Override
+    public Map<String, String> hashEntries(String key) {
+        commandStats.record("HGETALL", key);
+        Map<Object, Object> entries = circuitBreaker.execute(() -> redisTemplate.opsForHash().entries(key));
+        Map<String, String> result = new LinkedHashMap<>();
+        if (entries != null) {
+            entries.forEach((field, value) -> result.put(field.toString(), value != null ? value.toString() : null));
+        }
+        return result;
+    }
+
+    @Override
+    public void publish(String channel, String message) {
+        circuitBreaker.run(() -> redisTemplate.convertAndSend(channel, message));
+    }
+
+    @Override
+    public List<Object> executePipelined(Consumer<RedisOperations<String, Object>> operations) {
+        return circuitBreaker.execute(() -> redisTemplate.executePipelined(sessionCallback(operations, false)));
+    }
+
+    @Override
+    public List<Object> executeInTransaction(Consumer<RedisOperations<String, Object>> operations) {
+        return circuitBreaker.execute(() -> redisTemplate.execute(sessionCallback(operations, true)));
+    }
+
+    /**
+     * 遍历匹配的键，回调返回false时停止
+     * 集群连接不支持跨节点 SCAN，集群模式下依次遍历每个主节点
+     */
+    private void scanKeys(ScanOptions options, Predicate<String> keyConsumer) {
+        redisTemplate.execute((RedisCallback<Void>) connection -> {
+            if (connection instanceof RedisClusterConnection clusterConnection) {
+                for (RedisClusterNode node : clusterConnection.clusterGetNodes()) {
+                    if (node.isMaster() && !consume(clusterConnection.scan(node, options), keyConsumer)) {
+                        break;
+                    }
+                }
+            } else {
+                consume(connection.keyCommands().scan(options), keyConsumer);
+            }
+            return null;
+        });
+    }
+
+    private static boolean consume(Cursor<byte[]> cursor, Predicate<String> keyConsumer) {
+        try (cursor) {
+            while (cursor.hasNext()) {
+                if (!keyConsumer.test(new String(cursor.next(), StandardCharsets.UTF_8))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 包装回调：同一连接上执行，事务模式下前后加 MULTI/EXEC
+     * 管道模式要求回调返回null，结果由 executePipelined 收集
+     */
+    private static SessionCallback<List<Object>> sessionCallback(Consumer<RedisOperations<String, Object>> operations,
+                                                                 boolean transactional) {
+        return new SessionCallback<>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> List<Object> execute(RedisOperations<K, V> ops) throws DataAccessException {
+                RedisOperations<String, Object> stringOps = (RedisOperations<String, Object>) ops;
+                if (!transactional) {
+                    operations.accept(stringOps);
+                    return null;
+                }
+                stringOps.multi();
+                operations.accept(stringOps);
+                return stringOps.exec();
+            }
+        };
     }
 }
 
@@ -180,7 +180,7 @@ public class SocialLoginServiceImpl implements SocialLoginService {
     @Override
     @Transactional(rollbackFor = Exception.class)
     public void updateAccountType(Long userId) {
-        User user = userService.getById(userId);
+        User user = userService.getByIdWithPassword(userId);
         if (user == null) {
             return;
         }
@@ -211,7 +211,7 @@ public class SocialLoginServiceImpl implements SocialLoginService {
 
     @Override
     public boolean hasPassword(Long userId) {
-        User user = userService.getById(userId);
+        User user = userService.getByIdWithPassword(userId);
         if (user == null) {
             return false;
         }
@@ -1,18 +1,29 @@
 package com.vortex.loginregister_new.service.impl;
 
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.vortex.loginregister_new.common.CursorPage;
 import com.vortex.loginregister_new.entity.User;
 import com.vortex.loginregister_new.mapper.UserMapper;
 import com.vortex.loginregister_new.mapper.UserRoleMapper;
+import com.vortex.loginregister_new.service.LoginInfoWriteBehindService;
+import com.vortex.loginregister_new.service.RoleDictionaryService;
+import com.vortex.loginregister_new.service.UserCacheService;
 import com.vortex.loginregister_new.service.UserService;
+import com.vortex.loginregister_new.util.PageCursor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.Serializable;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 用户服务实现类
+ * 按ID、账号、邮箱的查询读取用户缓存，经由本服务的更新、删除在写库后按用户ID失效缓存
  *
  * @author 01Vortex
  * @since 2024
@@ -22,30 +33,91 @@ import java.util.List;
 public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements UserService {
 
     private final UserRoleMapper userRoleMapper;
-
-    public UserServiceImpl(UserRoleMapper userRoleMapper) {
+    private final UserCacheService userCacheService;
+    private final RoleDictionaryService roleDictionaryService;
+    private final LoginInfoWriteBehindService loginInfoWriteBehindService;
+
+    /**
+     * 带筛选条件的游标分页近似总数：筛选条件 -> 总数，短时间内复用同一次 COUNT
+     */
+    private final Cache<String, Long> cursorTotalCache = Caffeine.newBuilder()
+            .maximumSize(1000)
+            .expireAfterWrite(60, TimeUnit.SECONDS)
+            .build();
+
+    public UserServiceImpl(UserRoleMapper userRoleMapper,
+                           UserCacheService userCacheService,
+                           RoleDictionaryService roleDictionaryService,
+                           LoginInfoWriteBehindService loginInfoWriteBehindService) {
         this.userRoleMapper = userRoleMapper;
+        this.userCacheService = userCacheService;
+        this.roleDictionaryService = roleDictionaryService;
+        this.loginInfoWriteBehindService = loginInfoWriteBehindService;
     }
 
     @Override
     public User findByAccount(String account) {
-        return baseMapper.findByAccount(account);
+        return userCacheService.findByAccount(account);
     }
 
     @Override
     public User findByEmail(String email) {
+        return userCacheService.findByEmail(email);
+    }
+
+    @Override
+    public User getById(Serializable id) {
+        return userCacheService.getById(id instanceof Long userId ? userId : Long.valueOf(id.toString()));
+    }
+
+    @Override
+    public User findByAccountWithPassword(String account) {
+        return baseMapper.findByAccount(account);
+    }
+
+    @Override
+    public User findByEmailWithPassword(String email) {
         return baseMapper.findByEmail(email);
     }
 
+    @Override
+    public User findByLoginIdentifier(String identifier) {
+        return baseMapper.findByLoginIdentifier(identifier);
+    }
+
+    @Override
+    public User getByIdWithPassword(Long id) {
+        return baseMapper.selectById(id);
+    }
+
+    @Override
+    public boolean updateById(User entity) {
+        boolean updated = super.updateById(entity);
+        userCacheService.invalidate(entity.getId());
+        return updated;
+    }
+
+    @Override
+    public boolean removeById(Serializable id) {
+        boolean removed = super.removeById(id);
+        userCacheService.invalidate(id instanceof Long userId ? userId : Long.valueOf(id.toString()));
+        return removed;
+    }
+
     @Override
     public User findByPhone(String phone) {
         return baseMapper.findByPhone(phone);
     }
 
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public boolean updateLastLoginInfo(Long userId, String loginIp) {
+        // 延迟写入时只放入缓冲区，写库后由写入服务失效缓存
+        if (loginInfoWriteBehindService.isEnabled()) {
+            loginInfoWriteBehindService.recordUserLogin(userId, loginIp);
+            return true;
+        }
         int rows = baseMapper.updateLastLoginInfo(userId, loginIp);
+        userCacheService.invalidate(userId);
         return rows > 0;
     }
 
@@ -109,7 +181,53 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
 
     @Override
     public List<String> getUserRoles(Long userId) {
-        return userRoleMapper.findRoleCodesByUserId(userId);
+        return roleDictionaryService.toCodes(userRoleMapper.findRoleIdsByUserId(userId));
     }
-}
 
+    @Override
+    public List<String> getUserRoles(User user) {
+        if (user.getRoleIds() != null) {
+            return roleDictionaryService.toCodes(user.getRoleIds());
+        }
+        return getUserRoles(user.getId());
+    }
+
+    @Override
+    public CursorPage<User> pageByCursor(QueryWrapper<User> queryWrapper, String cursor, int size, boolean withTotal) {
+        // 总数按未加游标条件的筛选计算
+        Long total = withTotal ? approximateTotal(queryWrapper) : null;
+        if (cursor != null && !cursor.isEmpty()) {
+            PageCursor position = PageCursor.decode(cursor);
+            queryWrapper.and(wrapper -> wrapper
+                    .lt("create_time", position.getCreateTime())
+                    .or(same -> same.eq("create_time", position.getCreateTime()).lt("id", position.getId())));
+        }
+        // id 作为第二排序键保证同一创建时间内顺序稳定；多取一条判断是否有下一页
+        queryWrapper.orderByDesc("create_time").orderByDesc("id").last("LIMIT " + (size + 1));
+        List<User> records = list(queryWrapper);
+
+        CursorPage<User> page = new CursorPage<>();
+        page.setSize(size);
+        page.setHasNext(records.size() > size);
+        if (page.isHasNext()) {
+            records = records.subList(0, size);
+            User last = records.get(size - 1);
+            page.setNextCursor(new PageCursor(last.getCreateTime(), last.getId()).encode());
+        }
+        records.forEach(user -> user.setPassword(null));
+        page.setRecords(records);
+        page.setTotal(total);
+        return page;
+    }
+
+    /**
+     * 近似总数：无筛选条件时取表统计信息（不扫描表），有筛选条件时 COUNT 一次并缓存60秒
+     */
+    private Long approximateTotal(QueryWrapper<User> queryWrapper) {
+        if (queryWrapper.isEmptyOfWhere()) {
+            return baseMapper.estimateRowCount();
+        }
+        String key = queryWrapper.getSqlSegment() + queryWrapper.getParamNameValuePairs();
+        return cursorTotalCache.get(key, k -> count(queryWrapper));
+    }
+}
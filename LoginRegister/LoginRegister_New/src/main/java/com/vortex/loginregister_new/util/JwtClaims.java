@@ -0,0 +1,88 @@
+package com.vortex.loginregister_new.util;
+
+import com.vortex.loginregister_new.common.Constants;
+import lombok.Value;
+
+import java.util.Date;
+
+/**
+ * 已验证的 JWT 声明
+ * 由 {@link JwtUtil#parseToken(String)} 在一次签名校验后构建，不可变，可在同一请求内重复使用
+ *
+ * @author Vortex
+ * @since 2024
+ */
+@Value
+public class JwtClaims {
+
+    /**
+     * 用户ID
+     */
+    Long userId;
+
+    /**
+     * 账号（即 token 的 subject）
+     */
+    String account;
+
+    /**
+     * 角色
+     */
+    String role;
+
+    /**
+     * token 类型：access / refresh
+     */
+    String type;
+
+    /**
+     * 过期时间
+     */
+    Date expiration;
+
+    /**
+     * 签发时间
+     */
+    Date issuedAt;
+
+    /**
+     * token唯一标识（jti），早期签发的token没有此声明，为null
+     */
+    String tokenId;
+
+    /**
+     * 签发时的用户token纪元，早期签发的token为0
+     */
+    long epoch;
+
+    /**
+     * 刷新令牌所属家族ID，访问令牌及早期签发的刷新令牌为null
+     */
+    String familyId;
+
+    /**
+     * 刷新令牌在家族中的代数
+     */
+    long generation;
+
+    /**
+     * 是否为刷新token
+     */
+    public boolean isRefreshToken() {
+        return Constants.TokenType.REFRESH.equals(type);
+    }
+
+    /**
+     * 是否为管理员token
+     */
+    public boolean isAdmin() {
+        return Constants.Role.ADMIN.equals(role);
+    }
+
+    /**
+     * 剩余有效时间（毫秒），已过期返回0
+     */
+    public long getRemainingMillis() {
+        return Math.max(0, expiration.getTime() - System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,109 @@
+package com.vortex.loginregister_new.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 已验证 token 的本地缓存
+ * 以 token 摘要为键缓存解析后的声明，命中时跳过签名校验；
+ * 条目在 token 过期时或超过容量上限时淘汰
+ *
+ * 命中、未命中、淘汰次数通过 actuator 的 cache.* 指标（cache=jwt.verified）暴露
+ *
+ * @author Vortex
+ * @since 2024
+ */
+@Slf4j
+@Component
+public class JwtTokenCache {
+
+    private static final String CACHE_NAME = "jwt.verified";
+
+    private final boolean enabled;
+    private final Cache<String, JwtClaims> cache;
+
+    public JwtTokenCache(@Value("${jwt.cache.enabled:false}") boolean enabled,
+                         @Value("${jwt.cache.max-size:100000}") long maxSize,
+                         MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, JwtClaims>() {
+                    @Override
+                    public long expireAfterCreate(String key, JwtClaims claims, long currentTime) {
+                        return TimeUnit.MILLISECONDS.toNanos(claims.getRemainingMillis());
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, JwtClaims claims, long currentTime, long currentDuration) {
+                        return TimeUnit.MILLISECONDS.toNanos(claims.getRemainingMillis());
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, JwtClaims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        if (enabled) {
+            CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+            log.info("JWT验证缓存已启用，容量上限: {}", maxSize);
+        }
+    }
+
+    /**
+     * 获取缓存的声明
+     *
+     * @param token JWT token
+     * @return 已验证的声明，未命中或未启用时返回null
+     */
+    public JwtClaims get(String token) {
+        if (!enabled) {
+            return null;
+        }
+        return cache.getIfPresent(TokenDigestUtils.sha256(token));
+    }
+
+    /**
+     * 缓存已验证的声明
+     */
+    public void put(String token, JwtClaims claims) {
+        if (enabled && claims.getRemainingMillis() > 0) {
+            cache.put(TokenDigestUtils.sha256(token), claims);
+        }
+    }
+
+    /**
+     * 使单个token的缓存失效
+     */
+    public void invalidate(String token) {
+        if (enabled) {
+            cache.invalidate(TokenDigestUtils.sha256(token));
+        }
+    }
+
+    /**
+     * 使某个用户的所有缓存token失效（管理员token与用户ID不在同一空间，不受影响）
+     */
+    public void invalidateUser(Long userId) {
+        if (enabled) {
+            cache.asMap().values().removeIf(claims -> !claims.isAdmin() && userId.equals(claims.getUserId()));
+        }
+    }
+
+    /**
+     * 清空缓存（如密钥轮换后）
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+}
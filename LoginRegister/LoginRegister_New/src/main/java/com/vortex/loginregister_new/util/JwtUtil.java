@@ -1,16 +1,17 @@
 package com.vortex.loginregister_new.util;
 
+import com.vortex.loginregister_new.service.RefreshTokenFamilyService;
+import com.vortex.loginregister_new.service.UserTokenEpochService;
 import io.jsonwebtoken.*;
-import io.jsonwebtoken.security.Keys;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import javax.crypto.SecretKey;
-import java.nio.charset.StandardCharsets;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 
 /**
  * JWT 工具类
@@ -21,10 +22,13 @@ import java.util.Map;
  */
 @Slf4j
 @Component
+@RequiredArgsConstructor
 public class JwtUtil {
 
-    @Value("${jwt.secret}")
-    private String secret;
+    private final JwtKeyManager jwtKeyManager;
+    private final JwtTokenCache jwtTokenCache;
+    private final UserTokenEpochService userTokenEpochService;
+    private final RefreshTokenFamilyService refreshTokenFamilyService;
 
     @Value("${jwt.expiration:86400000}")
     private Long expiration;
@@ -38,12 +42,10 @@ public class JwtUtil {
     private static final long USER_EXPIRATION = 604800000L;
 
     /**
-     * 生成密钥
+     * Redis不可用、无法创建家族时签发的刷新令牌有效期（毫秒）
      */
-    private SecretKey getSigningKey() {
-        byte[] keyBytes = secret.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
-    }
+    @Value("${jwt.unbound-refresh-expiration:900000}")
+    private long unboundRefreshExpiration;
 
     /**
      * 生成访问令牌（Access Token）
@@ -69,18 +71,22 @@ public class JwtUtil {
         claims.put("userId", userId);
         claims.put("account", account);
         claims.put("role", role);
+        if (!"ROLE_ADMIN".equals(role)) {
+            // 写入用户当前纪元，修改密码后纪元递增，旧token随之失效
+            claims.put("epoch", userTokenEpochService.getEpoch(userId));
+        }
         claims.put("type", "access");
         
         // 根据角色设置不同的token有效期
         // 管理员：1天，用户：7天
         long tokenExpiration = "ROLE_ADMIN".equals(role) ? ADMIN_EXPIRATION : USER_EXPIRATION;
 
-        return Jwts.builder()
+        return jwtKeyManager.builder()
                 .claims(claims)
+                .id(newTokenId())
                 .subject(account)
                 .issuedAt(new Date())
                 .expiration(new Date(System.currentTimeMillis() + tokenExpiration))
-                .signWith(getSigningKey())
                 .compact();
     }
 
@@ -104,25 +110,105 @@ public class JwtUtil {
      * @return JWT refresh token
      */
     public String generateRefreshToken(Long userId, String account, String role) {
+        // 每次登录开启一个新的刷新令牌家族
+        String familyId = refreshTokenFamilyService.createFamily(userId, getRefreshTokenExpiration(role));
+        if (familyId == null) {
+            // Redis不可用：签发短期的无家族令牌，Redis恢复前无法刷新，恢复后只能使用一次
+            return buildRefreshToken(userId, account, role, null, 0,
+                    Math.min(unboundRefreshExpiration, getRefreshTokenExpiration(role)));
+        }
+        return generateRefreshToken(userId, account, role, familyId, 1);
+    }
+
+    /**
+     * 生成刷新令牌（Refresh Token）- 指定家族和代数，用于刷新令牌轮换
+     *
+     * @param userId     用户ID
+     * @param account    账号
+     * @param role       角色
+     * @param familyId   家族ID
+     * @param generation 代数
+     * @return JWT refresh token
+     */
+    public String generateRefreshToken(Long userId, String account, String role, String familyId, long generation) {
+        return buildRefreshToken(userId, account, role, familyId, generation, getRefreshTokenExpiration(role));
+    }
+
+    private String buildRefreshToken(Long userId, String account, String role, String familyId, long generation,
+                                     long tokenExpiration) {
         Map<String, Object> claims = new HashMap<>();
         claims.put("userId", userId);
         claims.put("account", account);
         claims.put("role", role);
+        if (!"ROLE_ADMIN".equals(role)) {
+            // 写入用户当前纪元，修改密码后纪元递增，旧token随之失效
+            claims.put("epoch", userTokenEpochService.getEpoch(userId));
+        }
         claims.put("type", "refresh");
-        
-        // 根据角色设置不同的refresh token有效期
-        // 管理员：1天，用户：7天
-        long tokenExpiration = "ROLE_ADMIN".equals(role) ? ADMIN_EXPIRATION : USER_EXPIRATION;
+        if (familyId != null) {
+            claims.put("fid", familyId);
+            claims.put("gen", generation);
+        }
 
-        return Jwts.builder()
+        return jwtKeyManager.builder()
                 .claims(claims)
+                .id(newTokenId())
                 .subject(account)
                 .issuedAt(new Date())
                 .expiration(new Date(System.currentTimeMillis() + tokenExpiration))
-                .signWith(getSigningKey())
                 .compact();
     }
 
+    /**
+     * 获取刷新令牌有效期（毫秒）
+     * 管理员：1天，用户：7天
+     */
+    public long getRefreshTokenExpiration(String role) {
+        return "ROLE_ADMIN".equals(role) ? ADMIN_EXPIRATION : USER_EXPIRATION;
+    }
+
+    /**
+     * 解析并验证token（只做一次签名校验）
+     * 认证链路应优先使用此方法，避免对同一个token重复解析；启用验证缓存时命中即返回
+     *
+     * @param token JWT token
+     * @return 已验证的声明，token无效或已过期时返回null
+     */
+    public JwtClaims parseToken(String token) {
+        JwtClaims cached = jwtTokenCache.get(token);
+        if (cached != null) {
+            return cached;
+        }
+        try {
+            Claims claims = getClaimsFromToken(token);
+            if (isTokenExpired(claims)) {
+                return null;
+            }
+            Object role = claims.get("role");
+            Object type = claims.get("type");
+            Long epoch = toLong(claims.get("epoch"));
+            Object familyId = claims.get("fid");
+            Long generation = toLong(claims.get("gen"));
+            JwtClaims verified = new JwtClaims(
+                    toLong(claims.get("userId")),
+                    claims.getSubject(),
+                    role != null ? role.toString() : "ROLE_USER",
+                    type != null ? type.toString() : null,
+                    claims.getExpiration(),
+                    claims.getIssuedAt(),
+                    claims.getId(),
+                    epoch != null ? epoch : 0L,
+                    familyId != null ? familyId.toString() : null,
+                    generation != null ? generation : 0L
+            );
+            jwtTokenCache.put(token, verified);
+            return verified;
+        } catch (JwtException | IllegalArgumentException e) {
+            log.warn("Token验证失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * 从token中获取账号
      */
@@ -156,13 +242,7 @@ public class JwtUtil {
     public Long getUserIdFromToken(String token) {
         try {
             Claims claims = getClaimsFromToken(token);
-            Object userId = claims.get("userId");
-            if (userId instanceof Integer) {
-                return ((Integer) userId).longValue();
-            } else if (userId instanceof Long) {
-                return (Long) userId;
-            }
-            return null;
+            return toLong(claims.get("userId"));
         } catch (Exception e) {
             log.warn("从token中获取用户ID失败: {}", e.getMessage());
             return null;
@@ -211,13 +291,30 @@ public class JwtUtil {
      * 从token中解析Claims
      */
     private Claims getClaimsFromToken(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
+        return jwtKeyManager.parser()
                 .parseSignedClaims(token)
                 .getPayload();
     }
 
+    /**
+     * 生成token唯一标识（jti），32位十六进制，黑名单以此为键
+     */
+    private String newTokenId() {
+        return UUID.randomUUID().toString().replace("-", "");
+    }
+
+    /**
+     * 将声明中的数值转换为Long（jackson反序列化时小数值为Integer）
+     */
+    private Long toLong(Object value) {
+        if (value instanceof Integer) {
+            return ((Integer) value).longValue();
+        } else if (value instanceof Long) {
+            return (Long) value;
+        }
+        return null;
+    }
+
     /**
      * 检查token是否过期
      */
@@ -0,0 +1,187 @@
+package com.vortex.loginregister_new.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 节点本地限流层
+ * 位于 Redis 限流之前，只保存热点键（LRU 淘汰），不产生网络 I/O：
+ * <ul>
+ *     <li>Redis 拒绝后在本地记住拒绝截止时间，截止前的请求直接拒绝，洪泛流量不再访问 Redis</li>
+ *     <li>可选的本地放行额度：每个窗口内前 limit * approximation / nodeCount 次请求本地放行，
+ *     不计入 Redis，全局最多多放行 limit * approximation 次（默认 0，即精确限流）</li>
+ *     <li>Redis 不可用时的降级限流：按本节点固定窗口计数，容量受 max-keys 限制</li>
+ * </ul>
+ *
+ * @author Vortex
+ * @since 2024
+ */
+@Slf4j
+@Component
+public class LocalRateLimiter {
+
+    private final boolean enabled;
+    private final int nodeCount;
+    private final double approximation;
+    private final Cache<String, KeyState> states;
+    private final Counter rejectedCounter;
+    private final Counter allowedCounter;
+
+    public LocalRateLimiter(@Value("${rate-limit.local.enabled:true}") boolean enabled,
+                            @Value("${rate-limit.local.max-keys:100000}") long maxKeys,
+                            @Value("${rate-limit.local.node-count:1}") int nodeCount,
+                            @Value("${rate-limit.local.approximation:0}") double approximation,
+                            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.nodeCount = Math.max(1, nodeCount);
+        this.approximation = Math.max(0, approximation);
+        this.states = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterAccess(1, TimeUnit.HOURS)
+                .build();
+        this.rejectedCounter = Counter.builder("rate_limit.local")
+                .description("本地限流层直接判定的请求数")
+                .tag("result", "rejected")
+                .register(meterRegistry);
+        this.allowedCounter = Counter.builder("rate_limit.local")
+                .description("本地限流层直接判定的请求数")
+                .tag("result", "allowed")
+                .register(meterRegistry);
+        if (enabled) {
+            log.info("本地限流层已启用，节点数: {}，近似放行比例: {}", this.nodeCount, this.approximation);
+        }
+    }
+
+    /**
+     * 获取本地记录的剩余拒绝时间
+     *
+     * @param key 限流键
+     * @return 仍需等待的毫秒数，未被拒绝时返回0
+     */
+    public long getBlockedMillis(String key) {
+        if (!enabled) {
+            return 0;
+        }
+        KeyState state = states.getIfPresent(key);
+        if (state == null) {
+            return 0;
+        }
+        long remaining = state.blockedUntil - System.currentTimeMillis();
+        if (remaining > 0) {
+            rejectedCounter.increment();
+            return remaining;
+        }
+        return 0;
+    }
+
+    /**
+     * 记录 Redis 的拒绝结果，等待时间内本地直接拒绝
+     *
+     * @param key              限流键
+     * @param retryAfterMillis 需等待的毫秒数
+     */
+    public void block(String key, long retryAfterMillis) {
+        if (!enabled || retryAfterMillis <= 0) {
+            return;
+        }
+        states.get(key, k -> new KeyState()).blockedUntil = System.currentTimeMillis() + retryAfterMillis;
+    }
+
+    /**
+     * 尝试使用本地放行额度
+     *
+     * @param key          限流键
+     * @param limit        全局窗口内最大请求次数
+     * @param windowMillis 窗口长度（毫秒）
+     * @return 本地放行时返回已使用的本地额度（从1开始），额度用尽或未启用时返回0
+     */
+    public int tryAcquireLocal(String key, int limit, long windowMillis) {
+        int allowance = (int) (limit * approximation / nodeCount);
+        if (!enabled || allowance <= 0) {
+            return 0;
+        }
+        int used = states.get(key, k -> new KeyState()).acquire(System.currentTimeMillis() / windowMillis, allowance);
+        if (used > 0) {
+            allowedCounter.increment();
+        }
+        return used;
+    }
+
+    /**
+     * Redis 不可用时的降级限流（本节点固定窗口计数）
+     * 不受 enabled 开关影响，保证降级期间限流不会失效
+     *
+     * @param key          限流键
+     * @param limit        窗口内最大请求次数
+     * @param windowMillis 窗口长度（毫秒）
+     * @return 放行时返回窗口内已放行次数（从1开始），超过限制返回0
+     */
+    public int acquireFallback(String key, int limit, long windowMillis) {
+        return KeyState.acquire(states.get(key, k -> new KeyState()).fallbackWindow,
+                System.currentTimeMillis() / windowMillis, limit);
+    }
+
+    /**
+     * 本地放行时对全局剩余次数的保守估计（假设各节点流量均匀）
+     *
+     * @param limit 全局窗口内最大请求次数
+     * @param used  已使用的本地额度
+     */
+    public int estimateRemaining(int limit, int used) {
+        return Math.max(0, limit - used * nodeCount);
+    }
+
+    /**
+     * 清除本地记录
+     */
+    public void invalidate(String key) {
+        states.invalidate(key);
+    }
+
+    /**
+     * 单个限流键的本地状态
+     */
+    private static final class KeyState {
+
+        /**
+         * 拒绝截止时间（毫秒时间戳）
+         */
+        private volatile long blockedUntil;
+
+        /**
+         * 高32位为窗口序号（取低32位），低32位为该窗口内已使用的本地额度
+         */
+        private final AtomicLong window = new AtomicLong();
+
+        /**
+         * 降级限流计数，编码同上
+         */
+        private final AtomicLong fallbackWindow = new AtomicLong();
+
+        private int acquire(long bucket, int allowance) {
+            return acquire(window, bucket, allowance);
+        }
+
+        private static int acquire(AtomicLong window, long bucket, int allowance) {
+            long tag = bucket & 0xFFFFFFFFL;
+            while (true) {
+                long current = window.get();
+                int used = (current >>> 32) == tag ? (int) current : 0;
+                if (used >= allowance) {
+                    return 0;
+                }
+                if (window.compareAndSet(current, (tag << 32) | (used + 1))) {
+                    return used + 1;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.vortex.loginregister_new.util;
+
+import com.vortex.loginregister_new.common.ResultCode;
+import com.vortex.loginregister_new.exception.BusinessException;
+import lombok.Value;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * 游标分页位置
+ * 按 (create_time DESC, id DESC) 排序时上一页最后一条记录的位置，对客户端编码为不透明的 Base64URL 字符串；
+ * 下一页取 create_time 更早、或 create_time 相同且 id 更小的记录，任意深度的翻页都是一次索引定位
+ *
+ * @author Vortex
+ * @since 2024
+ */
+@Value
+public class PageCursor {
+
+    private static final char SEPARATOR = '|';
+
+    LocalDateTime createTime;
+    Long id;
+
+    /**
+     * 编码为客户端使用的游标
+     */
+    public String encode() {
+        String raw = createTime.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析客户端传入的游标
+     *
+     * @param cursor 游标
+     * @return 游标位置
+     * @throws BusinessException 游标格式错误
+     */
+    public static PageCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            if (separator <= 0) {
+                throw new BusinessException(ResultCode.BAD_REQUEST, "无效的分页游标");
+            }
+            return new PageCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.valueOf(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new BusinessException(ResultCode.BAD_REQUEST, "无效的分页游标");
+        }
+    }
+}
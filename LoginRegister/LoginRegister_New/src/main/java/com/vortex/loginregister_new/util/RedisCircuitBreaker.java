@@ -0,0 +1,158 @@
+package com.vortex.loginregister_new.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Redis 熔断器
+ * 连续失败达到阈值后打开，打开期间所有命令立即失败（不等待连接超时），调用方转入本地降级逻辑；
+ * 打开时长结束后进入半开状态，只放行一个探测命令，成功则关闭，失败则重新打开
+ *
+ * 状态通过 redis.circuit.state 指标（0=关闭, 1=打开, 2=半开）暴露，
+ * 状态切换次数和被拒绝的命令数分别为 redis.circuit.transitions、redis.circuit.rejected
+ *
+ * @author Vortex
+ * @since 2024
+ */
+@Slf4j
+@Component
+public class RedisCircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openDurationMillis;
+
+    private volatile State state = State.CLOSED;
+    private volatile long openedAt;
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicBoolean probeInFlight = new AtomicBoolean();
+
+    private final MeterRegistry meterRegistry;
+    private final Counter rejectedCounter;
+
+    public RedisCircuitBreaker(@Value("${redis.circuit-breaker.failure-threshold:5}") int failureThreshold,
+                               @Value("${redis.circuit-breaker.open-duration:10000}") long openDurationMillis,
+                               MeterRegistry meterRegistry) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openDurationMillis = openDurationMillis;
+        this.meterRegistry = meterRegistry;
+        this.rejectedCounter = Counter.builder("redis.circuit.rejected")
+                .description("熔断期间被直接拒绝的Redis命令数")
+                .register(meterRegistry);
+        Gauge.builder("redis.circuit.state", this, breaker -> breaker.state.ordinal())
+                .description("Redis熔断器状态：0=关闭, 1=打开, 2=半开")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 在熔断器保护下执行 Redis 命令
+     *
+     * @throws RedisConnectionFailureException 熔断器打开时
+     * @throws DataAccessException             命令本身失败时（计入失败次数）
+     */
+    public <T> T execute(Supplier<T> command) {
+        boolean probe = acquirePermission();
+        try {
+            T result = command.get();
+            onSuccess(probe);
+            return result;
+        } catch (DataAccessException e) {
+            onFailure(probe);
+            throw e;
+        } catch (RuntimeException e) {
+            // 非数据访问异常（如结果转换错误）不代表Redis不可用
+            onSuccess(probe);
+            throw e;
+        }
+    }
+
+    /**
+     * 在熔断器保护下执行无返回值的 Redis 命令
+     */
+    public void run(Runnable command) {
+        execute(() -> {
+            command.run();
+            return null;
+        });
+    }
+
+    /**
+     * Redis 当前是否可用（熔断器未打开）
+     * 调用方可据此直接走降级逻辑，避免构造注定失败的请求
+     */
+    public boolean isAvailable() {
+        return state != State.OPEN || System.currentTimeMillis() - openedAt >= openDurationMillis;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    private boolean acquirePermission() {
+        State current = state;
+        if (current == State.CLOSED) {
+            return false;
+        }
+        if (current == State.OPEN && System.currentTimeMillis() - openedAt >= openDurationMillis) {
+            transition(State.OPEN, State.HALF_OPEN);
+        }
+        // 半开状态只放行一个探测命令
+        if (state == State.HALF_OPEN && probeInFlight.compareAndSet(false, true)) {
+            return true;
+        }
+        rejectedCounter.increment();
+        throw new RedisConnectionFailureException("Redis熔断器已打开");
+    }
+
+    private void onSuccess(boolean probe) {
+        consecutiveFailures.set(0);
+        if (probe) {
+            probeInFlight.set(false);
+            transition(State.HALF_OPEN, State.CLOSED);
+        }
+    }
+
+    private void onFailure(boolean probe) {
+        if (probe) {
+            probeInFlight.set(false);
+            openedAt = System.currentTimeMillis();
+            transition(State.HALF_OPEN, State.OPEN);
+            return;
+        }
+        if (consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            openedAt = System.currentTimeMillis();
+            transition(State.CLOSED, State.OPEN);
+        }
+    }
+
+    private synchronized void transition(State from, State to) {
+        if (state != from) {
+            return;
+        }
+        state = to;
+        consecutiveFailures.set(0);
+        Counter.builder("redis.circuit.transitions")
+                .description("Redis熔断器状态切换次数")
+                .tag("state", to.name())
+                .register(meterRegistry)
+                .increment();
+        if (to == State.OPEN) {
+            log.error("Redis连续失败，熔断器打开，{}ms 内使用本地降级", openDurationMillis);
+        } else {
+            log.warn("Redis熔断器状态: {} -> {}", from, to);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.vortex.loginregister_new.util;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Redis 命令按键前缀统计
+ * RedisServiceImpl 每执行一条带键的命令即按键前缀和命令名计数，多键命令按键分别计数；
+ * 计数以 redis.commands 指标（prefix、command 标签）暴露，并定期换算为每秒命令数供容量规划使用
+ *
+ * 键前缀取最长匹配的已知前缀（redis.keyspace.prefixes 可追加），都不匹配时取第一段（如 login_attempt:），
+ * 不含冒号的键归入 (other)，标签数量不受用户输入影响
+ *
+ * @author Vortex
+ * @since 2024
+ */
+@Component
+public class RedisCommandStats {
+
+    public static final String OTHER_PREFIX = "(other)";
+
+    /**
+     * 第一段不足以区分用途的前缀
+     */
+    private static final List<String> DEFAULT_PREFIXES = List.of(
+            "rate_limit:sw:", "rate_limit:gcra:", "jwt:blacklist:", "user:token:epoch:", "user:token:invalid:",
+            "user:cache:id:", "user:cache:account:", "user:cache:email:");
+
+    private final List<String> prefixes;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 前缀 -> 命令名 -> 计数
+     */
+    private final ConcurrentMap<String, ConcurrentMap<String, LongAdder>> counts = new ConcurrentHashMap<>();
+
+    private Map<String, Long> lastTotals = Map.of();
+    private long lastSnapshotAt = System.currentTimeMillis();
+    private volatile Map<String, Double> rates = Map.of();
+
+    public RedisCommandStats(@Value("${redis.keyspace.prefixes:}") List<String> extraPrefixes,
+                             MeterRegistry meterRegistry) {
+        this.prefixes = Stream.concat(DEFAULT_PREFIXES.stream(), extraPrefixes.stream())
+                .map(String::trim)
+                .filter(prefix -> !prefix.isEmpty())
+                .distinct()
+                .sorted(Comparator.comparingInt(String::length).reversed())
+                .toList();
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 计算键所属的前缀
+     */
+    public String prefixOf(String key) {
+        for (String prefix : prefixes) {
+            if (key.startsWith(prefix)) {
+                return prefix;
+            }
+        }
+        int separator = key.indexOf(':');
+        return separator > 0 ? key.substring(0, separator + 1) : OTHER_PREFIX;
+    }
+
+    /**
+     * 记录一条单键命令
+     */
+    public void record(String command, String key) {
+        counter(prefixOf(key), command).increment();
+    }
+
+    /**
+     * 记录一条多键命令（按键分别计数）
+     */
+    public void record(String command, Collection<String> keys) {
+        for (String key : keys) {
+            record(command, key);
+        }
+    }
+
+    /**
+     * 各前缀按命令名的累计次数
+     */
+    public Map<String, Map<String, Long>> getCounts() {
+        Map<String, Map<String, Long>> result = new TreeMap<>();
+        counts.forEach((prefix, commands) -> {
+            Map<String, Long> byCommand = new TreeMap<>();
+            commands.forEach((command, adder) -> byCommand.put(command, adder.sum()));
+            result.put(prefix, byCommand);
+        });
+        return result;
+    }
+
+    /**
+     * 各前缀最近一个统计周期内的每秒命令数
+     */
+    public Map<String, Double> getRates() {
+        return rates;
+    }
+
+    /**
+     * 按统计周期换算每秒命令数
+     */
+    @Scheduled(fixedRateString = "${redis.keyspace.rate-interval:60000}")
+    public synchronized void snapshot() {
+        long now = System.currentTimeMillis();
+        double elapsedSeconds = Math.max(1, now - lastSnapshotAt) / 1000.0;
+        Map<String, Long> totals = new HashMap<>();
+        Map<String, Double> current = new TreeMap<>();
+        counts.forEach((prefix, commands) -> {
+            long total = commands.values().stream().mapToLong(LongAdder::sum).sum();
+            totals.put(prefix, total);
+            current.put(prefix, (total - lastTotals.getOrDefault(prefix, 0L)) / elapsedSeconds);
+        });
+        lastTotals = totals;
+        lastSnapshotAt = now;
+        rates = current;
+    }
+
+    private LongAdder counter(String prefix, String command) {
+        return counts.computeIfAbsent(prefix, p -> new ConcurrentHashMap<>())
+                .computeIfAbsent(command, c -> {
+                    LongAdder adder = new LongAdder();
+                    FunctionCounter.builder("redis.commands", adder, LongAdder::sum)
+                            .description("按键前缀统计的Redis命令数")
+                            .tag("prefix", prefix)
+                            .tag("command", c)
+                            .register(meterRegistry);
+                    return adder;
+                });
+    }
+}
@@ -0,0 +1,46 @@
+package com.vortex.loginregister_new.util;
+
+/**
+ * Redis 键构建器
+ * 集群模式下以标识作为哈希标签（prefix{id}），同一标识的不同前缀键（如失败次数与锁定标记、纪元与旧版失效标记）
+ * 落在同一槽位，多键 Lua 脚本和 MGET/DEL 无需跨槽；单机和哨兵模式沿用原有的平铺键（prefix + id），升级无需迁移数据
+ *
+ * 标识中含有花括号时，Redis 会截取到第一个 '}' 为止作为标签，可能得到空标签而按整个键计算槽位，
+ * 此时改用标识的散列值作为标签（prefix{hash}id），键本身仍包含完整标识
+ *
+ * @author Vortex
+ * @since 2024
+ */
+public class RedisKeys {
+
+    private final boolean hashTags;
+
+    public RedisKeys(boolean hashTags) {
+        this.hashTags = hashTags;
+    }
+
+    /**
+     * 是否为集群模式（使用哈希标签）
+     */
+    public boolean isClusterMode() {
+        return hashTags;
+    }
+
+    /**
+     * 构建键
+     *
+     * @param prefix 键前缀，如 login_attempt:
+     * @param id     标识（用户ID、账号、邮箱等）
+     * @return 键
+     */
+    public String key(String prefix, Object id) {
+        String value = String.valueOf(id);
+        if (!hashTags) {
+            return prefix + value;
+        }
+        if (value.indexOf('{') >= 0 || value.indexOf('}') >= 0) {
+            return prefix + "{" + Integer.toHexString(value.hashCode()) + "}" + value;
+        }
+        return prefix + "{" + value + "}";
+    }
+}
@@ -0,0 +1,247 @@
+package com.vortex.loginregister_new.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.RedisChannelHandler;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisConnectionException;
+import io.lettuce.core.RedisConnectionStateListener;
+import io.lettuce.core.RedisException;
+import io.lettuce.core.TrackingArgs;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.push.PushMessage;
+import io.lettuce.core.codec.StringCodec;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.stereotype.Component;
+
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Redis 近端缓存（服务端辅助的客户端缓存）
+ * 使用一条独立的 RESP3 连接开启 CLIENT TRACKING：经该连接读取过的键被修改、删除或过期时，
+ * Redis 在同一连接上推送失效消息，本地副本随即移除，读多写少的键因此可以直接从内存读取而不会读到旧值。
+ * 不存在的键同样缓存（锁定标记、黑名单等绝大多数情况下不存在）
+ *
+ * 默认关闭，通过 redis.near-cache.enabled 开启；需要 Redis 6+ 和 RESP3 协议，条件不满足时自动禁用。
+ * 跟踪连接断开期间收不到失效消息，此时清空本地副本并改为直接读 Redis，重连后重新开启跟踪
+ *
+ * @author Vortex
+ * @since 2024
+ */
+@Slf4j
+@Component
+public class RedisNearCache {
+
+    private final boolean enabled;
+    private final RedisConnectionFactory connectionFactory;
+
+    /**
+     * 键 -> 值，Optional.empty() 表示键不存在
+     */
+    private final Cache<String, Optional<String>> cache;
+
+    /**
+     * 已收到的失效消息数，用于识别读取期间发生的失效
+     */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private volatile boolean tracking;
+    private RedisClient client;
+    private StatefulRedisConnection<String, String> connection;
+    private final RedisConnectionStateListener stateListener = new TrackingStateListener();
+
+    public RedisNearCache(@Value("${redis.near-cache.enabled:false}") boolean enabled,
+                          @Value("${redis.near-cache.max-size:100000}") long maxSize,
+                          RedisConnectionFactory connectionFactory,
+                          MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.connectionFactory = connectionFactory;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "redis.near-cache");
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        if (!(connectionFactory instanceof LettuceConnectionFactory lettuceFactory)
+                || !(lettuceFactory.getNativeClient() instanceof RedisClient redisClient)) {
+            log.warn("近端缓存仅支持 Lettuce 单机/哨兵连接，已禁用");
+            return;
+        }
+        try {
+            client = redisClient;
+            connection = redisClient.connect(StringCodec.UTF8);
+            connection.addListener(this::onPush);
+            redisClient.addListener(stateListener);
+            connection.sync().clientTracking(TrackingArgs.Builder.enabled());
+            tracking = true;
+            log.info("Redis 近端缓存已启用");
+        } catch (RedisException e) {
+            log.warn("Redis 不支持客户端缓存（需要 Redis 6+ 和 RESP3），近端缓存已禁用: {}", e.getMessage());
+            destroy();
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        tracking = false;
+        if (client != null) {
+            client.removeListener(stateListener);
+        }
+        if (connection != null) {
+            connection.close();
+        }
+        cache.invalidateAll();
+    }
+
+    /**
+     * 近端缓存当前是否可用（已开启且跟踪连接正常）
+     */
+    public boolean isActive() {
+        return tracking;
+    }
+
+    /**
+     * 读取单个键，未命中时经跟踪连接读取并缓存
+     *
+     * @param key 键
+     * @return 值，不存在时返回null
+     */
+    public String get(String key) {
+        Optional<String> cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached.orElse(null);
+        }
+        long before = invalidations.get();
+        String value = call(() -> connection.sync().get(key));
+        cache.put(key, Optional.ofNullable(value));
+        discardIfInvalidated(before, List.of(key));
+        return value;
+    }
+
+    /**
+     * 批量读取，未命中的键合并为一次 MGET
+     *
+     * @param keys 键
+     * @return 值列表，与键顺序一致，不存在的键对应null
+     */
+    public List<String> multiGet(List<String> keys) {
+        List<String> result = new ArrayList<>(keys.size());
+        List<String> missing = new ArrayList<>();
+        List<Integer> missingIndexes = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i++) {
+            Optional<String> cached = cache.getIfPresent(keys.get(i));
+            if (cached == null) {
+                missing.add(keys.get(i));
+                missingIndexes.add(i);
+            }
+            result.add(cached != null ? cached.orElse(null) : null);
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+        long before = invalidations.get();
+        List<KeyValue<String, String>> values = call(() -> connection.sync().mget(missing.toArray(String[]::new)));
+        for (int i = 0; i < missing.size(); i++) {
+            String value = values.get(i).getValueOrElse(null);
+            cache.put(missing.get(i), Optional.ofNullable(value));
+            result.set(missingIndexes.get(i), value);
+        }
+        discardIfInvalidated(before, missing);
+        return result;
+    }
+
+    /**
+     * 先写入再检查：读取期间收到过失效消息时无法确认副本是否最新，丢弃本次写入
+     * 失效消息先计数后移除，因此在检查之后到达的失效消息一定会移除本次写入
+     */
+    private void discardIfInvalidated(long before, List<String> keys) {
+        if (invalidations.get() != before || !tracking) {
+            cache.invalidateAll(keys);
+        }
+    }
+
+    private void onPush(PushMessage message) {
+        if (!"invalidate".equals(message.getType())) {
+            return;
+        }
+        invalidations.incrementAndGet();
+        List<Object> content = message.getContent();
+        Object keys = content.size() > 1 ? content.get(1) : null;
+        if (keys instanceof List<?> list) {
+            for (Object key : list) {
+                cache.invalidate(key instanceof ByteBuffer buffer ? StringCodec.UTF8.decodeKey(buffer) : String.valueOf(key));
+            }
+        } else {
+            // FLUSHALL 或服务端跟踪表淘汰时推送 null，表示所有键均失效
+            cache.invalidateAll();
+        }
+    }
+
+    /**
+     * 将 Lettuce 异常转换为 Spring 数据访问异常，与 RedisTemplate 的行为保持一致
+     */
+    private static <T> T call(Supplier<T> command) {
+        try {
+            return command.get();
+        } catch (RedisConnectionException e) {
+            throw new RedisConnectionFailureException("Redis 近端缓存连接失败", e);
+        } catch (RedisException e) {
+            throw new RedisSystemException("Redis 近端缓存读取失败", e);
+        }
+    }
+
+    /**
+     * 跟踪连接断开时停止使用本地副本，重连后重新开启跟踪
+     */
+    private final class TrackingStateListener implements RedisConnectionStateListener {
+
+        @Override
+        public void onRedisConnected(RedisChannelHandler<?, ?> handler, SocketAddress socketAddress) {
+            if (handler != connection) {
+                return;
+            }
+            connection.async().clientTracking(TrackingArgs.Builder.enabled()).thenRun(() -> {
+                cache.invalidateAll();
+                tracking = true;
+                log.info("Redis 近端缓存跟踪连接已恢复");
+            });
+        }
+
+        @Override
+        public void onRedisDisconnected(RedisChannelHandler<?, ?> handler) {
+            if (handler != connection) {
+                return;
+            }
+            tracking = false;
+            cache.invalidateAll();
+            log.warn("Redis 近端缓存跟踪连接断开，暂时直接读取 Redis");
+        }
+
+        @Override
+        public void onRedisExceptionCaught(RedisChannelHandler<?, ?> handler, Throwable cause) {
+            // 连接异常随后会触发断开事件
+        }
+    }
+}
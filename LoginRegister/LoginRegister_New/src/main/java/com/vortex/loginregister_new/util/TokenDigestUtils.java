@@ -0,0 +1,36 @@
+package com.vortex.loginregister_new.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * Token 摘要工具类
+ * 用定长摘要代替完整 token 作为缓存键或 Redis 键
+ *
+ * @author Vortex
+ * @since 2024
+ */
+public final class TokenDigestUtils {
+
+    private TokenDigestUtils() {
+        throw new UnsupportedOperationException("TokenDigestUtils class cannot be instantiated");
+    }
+
+    /**
+     * 计算 SHA-256 摘要，返回 URL 安全的 Base64 字符串（43个字符）
+     *
+     * @param value 原文
+     * @return 摘要
+     */
+    public static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(value.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+}
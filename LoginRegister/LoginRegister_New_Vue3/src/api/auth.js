@@ -92,7 +92,8 @@ async function refreshAccessToken() {
     
     const data = await response.json()
     if (data.code === 200 && data.accessToken) {
-      tokenManager.setTokens(data.accessToken, refreshToken)
+      // 刷新令牌每次使用后轮换，保存服务端返回的新刷新令牌
+      tokenManager.setTokens(data.accessToken, data.refreshToken || refreshToken)
       return data.accessToken
     } else {
       tokenManager.clearTokens()